@@ -0,0 +1,119 @@
+package com.indusnetwork.api;
+
+import com.indusnetwork.api.WebAPIManager.PlayerData;
+import com.indusnetwork.api.WebAPIManager.PlayerStats;
+import com.indusnetwork.api.WebAPIManager.PlayerUpdate;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Website payload encoding and decoding: WebJsonCodec against the
+ * json-simple JSONObject path it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebJsonCodecBenchmark {
+    
+    @Param({"1", "50", "500"})
+    private int updates;
+    
+    private List<PlayerUpdate> batch;
+    private byte[] playerResponse;
+    private long timestamp;
+    
+    @Setup
+    public void setup() {
+        batch = new ArrayList<>(updates);
+        for (int i = 0; i < updates; i++) {
+            PlayerStats stats = new PlayerStats(i, i / 2, 3600L * i, i * 40, i * 35, 12000L * i);
+            batch.add(new PlayerUpdate(UUID.randomUUID(), i % 3 != 0, stats));
+        }
+        playerResponse = ("{\"success\":true,\"data\":{\"id\":\"" + UUID.randomUUID() + "\","
+            + "\"username\":\"Steve_123\",\"rank\":\"vip\",\"coins\":15250,\"verified\":true,"
+            + "\"joined_at\":\"2024-01-15T10:30:00Z\",\"tags\":[\"builder\",\"pvp\"]}}")
+            .getBytes(StandardCharsets.UTF_8);
+        timestamp = System.currentTimeMillis();
+    }
+    
+    @Benchmark
+    public byte[] encodeBulkCodec() {
+        return WebJsonCodec.encodeBulk(batch, timestamp);
+    }
+    
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public byte[] encodeBulkJsonSimple() {
+        JSONArray updateArray = new JSONArray();
+        for (PlayerUpdate update : batch) {
+            JSONObject entry = new JSONObject();
+            entry.put("player_id", update.getPlayerId().toString());
+            if (update.getOnline() != null) {
+                entry.put("online", update.getOnline());
+            }
+            if (update.getStats() != null) {
+                entry.put("stats", statsToJSON(update.getStats()));
+            }
+            updateArray.add(entry);
+        }
+        
+        JSONObject requestData = new JSONObject();
+        requestData.put("updates", updateArray);
+        requestData.put("timestamp", timestamp);
+        return requestData.toJSONString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Benchmark
+    public PlayerData decodePlayerCodec() {
+        return WebJsonCodec.decodePlayerData(playerResponse);
+    }
+    
+    @Benchmark
+    public PlayerData decodePlayerJsonSimple() throws Exception {
+        JSONObject response = (JSONObject) new JSONParser().parse(new String(playerResponse, StandardCharsets.UTF_8));
+        if (!(Boolean) response.getOrDefault("success", false)) {
+            return null;
+        }
+        JSONObject playerData = (JSONObject) response.get("data");
+        return new PlayerData(
+            (String) playerData.get("username"),
+            (String) playerData.get("rank"),
+            ((Number) playerData.get("coins")).intValue(),
+            (Boolean) playerData.getOrDefault("verified", false)
+        );
+    }
+    
+    @SuppressWarnings("unchecked")
+    private JSONObject statsToJSON(PlayerStats stats) {
+        JSONObject json = new JSONObject();
+        json.put("kills", stats.getKills());
+        json.put("deaths", stats.getDeaths());
+        json.put("playtime", stats.getPlaytime());
+        json.put("blocks_broken", stats.getBlocksBroken());
+        json.put("blocks_placed", stats.getBlocksPlaced());
+        json.put("distance_walked", stats.getDistanceWalked());
+        json.put("last_seen", timestamp);
+        return json;
+    }
+}
@@ -0,0 +1,143 @@
+package com.indusnetwork.managers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CoinLedger under contention. Run it at 1, 2, 4 and 8 threads with
+ * -Djmh.threads (see the README) to see how it scales. After every
+ * iteration the balances are summed and checked against the coins that
+ * went in, so a lost or doubled update fails the run instead of only
+ * skewing the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoinLedgerBenchmark {
+    
+    private static final long STARTING_BALANCE = 1_000_000L;
+    // Queued transactions per player before the flush stand-in drops them
+    private static final int FLUSH_EVERY = 64;
+    
+    // 1 puts every account behind one lock, like a synchronized map
+    @Param({"1", "64"})
+    private int segments;
+    
+    @Param({"100", "10000"})
+    private int accounts;
+    
+    private CoinLedger ledger;
+    private UUID[] playerIds;
+    private LongAdder credited;
+    private LongAdder debited;
+    private CoinLeaderboard leaderboard;
+    private ConcurrentMap<UUID, List<CoinTransaction>> pendingTransactions;
+    private LongAdder journaled;
+    
+    @Setup(Level.Iteration)
+    public void setup() {
+        ledger = new CoinLedger(segments);
+        playerIds = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            playerIds[i] = UUID.randomUUID();
+            ledger.set(playerIds[i], STARTING_BALANCE);
+        }
+        credited = new LongAdder();
+        debited = new LongAdder();
+        leaderboard = new CoinLeaderboard(ledger);
+        pendingTransactions = new ConcurrentHashMap<>();
+        journaled = new LongAdder();
+    }
+    
+    @TearDown(Level.Iteration)
+    public void verify() {
+        long expected = accounts * STARTING_BALANCE + credited.sum() - debited.sum();
+        long[] actual = new long[1];
+        ledger.forEach((playerId, balance) -> actual[0] += balance);
+        if (actual[0] != expected) {
+            throw new IllegalStateException("Ledger total is " + actual[0] + ", expected " + expected
+                + " (" + (expected - actual[0]) + " coins lost)");
+        }
+    }
+    
+    @Benchmark
+    public boolean transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID from = playerIds[random.nextInt(accounts)];
+        UUID to = playerIds[random.nextInt(accounts)];
+        // Transfers move coins around, so the total must stay the same
+        return ledger.transfer(from, to, 1 + random.nextInt(100));
+    }
+    
+    @Benchmark
+    public CoinLedger.Result apply() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID playerId = playerIds[random.nextInt(accounts)];
+        long delta = random.nextBoolean() ? 1 + random.nextInt(100) : -(1 + random.nextInt(100));
+        CoinLedger.Result result = ledger.apply(CoinTransaction.create(playerId, delta, CoinTransaction.REASON_PLUGIN));
+        if (result == CoinLedger.Result.APPLIED) {
+            if (delta > 0) {
+                credited.add(delta);
+            } else {
+                debited.add(-delta);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * The work CoinManager.applyTransaction does in memory: the ledger change
+     * with the queueing listener under the segment lock, then the leaderboard
+     * refresh. CoinManager itself needs a running server, so its queue step
+     * is repeated here; the journal append is counted instead of written.
+     */
+    @Benchmark
+    public CoinLedger.Result applyTransaction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID playerId = playerIds[random.nextInt(accounts)];
+        long delta = random.nextBoolean() ? 1 + random.nextInt(100) : -(1 + random.nextInt(100));
+        CoinLedger.Result result = ledger.apply(CoinTransaction.create(playerId, delta, CoinTransaction.REASON_PLUGIN), this::queue);
+        if (result == CoinLedger.Result.APPLIED) {
+            leaderboard.refresh(playerId);
+            if (delta > 0) {
+                credited.add(delta);
+            } else {
+                debited.add(-delta);
+            }
+        }
+        return result;
+    }
+    
+    // CoinManager.queue, with a flush after every FLUSH_EVERY transactions of a player
+    private void queue(CoinTransaction transaction) {
+        List<CoinTransaction> pending = pendingTransactions.computeIfAbsent(transaction.getPlayerId(), id -> new ArrayList<>());
+        pending.add(transaction);
+        if (pending.size() >= FLUSH_EVERY) {
+            pendingTransactions.remove(transaction.getPlayerId());
+        }
+        journaled.increment();
+    }
+}
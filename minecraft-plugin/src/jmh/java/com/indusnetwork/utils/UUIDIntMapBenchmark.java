@@ -0,0 +1,102 @@
+package com.indusnetwork.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UUIDIntMap against HashMap<UUID, Integer> for lookups, increments and a
+ * full rebuild, at typical to very large player counts. Run with
+ * -prof gc to compare allocation per operation as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UUIDIntMapBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    private int players;
+    
+    private UUID[] keys;
+    // Fresh UUID objects equal to the keys, like ids coming from events
+    private UUID[] lookups;
+    private UUIDIntMap primitiveMap;
+    private Map<UUID, Integer> boxedMap;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        keys = new UUID[players];
+        lookups = new UUID[players];
+        primitiveMap = new UUIDIntMap(players);
+        boxedMap = new HashMap<>(players * 2);
+        for (int i = 0; i < players; i++) {
+            keys[i] = UUID.randomUUID();
+            lookups[i] = new UUID(keys[i].getMostSignificantBits(), keys[i].getLeastSignificantBits());
+            primitiveMap.put(keys[i], i);
+            boxedMap.put(keys[i], i);
+        }
+    }
+    
+    private UUID nextLookup() {
+        UUID key = lookups[next];
+        next = next + 1 == players ? 0 : next + 1;
+        return key;
+    }
+    
+    @Benchmark
+    public int getPrimitive() {
+        return primitiveMap.get(nextLookup(), 0);
+    }
+    
+    @Benchmark
+    public int getBoxed() {
+        return boxedMap.getOrDefault(nextLookup(), 0);
+    }
+    
+    @Benchmark
+    public int addToPrimitive() {
+        return primitiveMap.addTo(nextLookup(), 1);
+    }
+    
+    @Benchmark
+    public Integer addToBoxed() {
+        // Values above the Integer cache allocate a new box on every update
+        return boxedMap.merge(nextLookup(), 1, Integer::sum);
+    }
+    
+    @Benchmark
+    public void fillPrimitive(Blackhole blackhole) {
+        UUIDIntMap map = new UUIDIntMap();
+        for (int i = 0; i < players; i++) {
+            map.put(keys[i], i);
+        }
+        blackhole.consume(map);
+    }
+    
+    @Benchmark
+    public void fillBoxed(Blackhole blackhole) {
+        Map<UUID, Integer> map = new HashMap<>();
+        for (int i = 0; i < players; i++) {
+            map.put(keys[i], i);
+        }
+        blackhole.consume(map);
+    }
+}
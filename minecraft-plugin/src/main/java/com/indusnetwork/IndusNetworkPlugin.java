@@ -1,5 +1,7 @@
 package com.indusnetwork;
 
+import net.milkbowl.vault.economy.Economy;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -10,16 +12,27 @@ import com.indusnetwork.commands.*;
 import com.indusnetwork.listeners.*;
 import com.indusnetwork.managers.*;
 import com.indusnetwork.api.WebAPIManager;
+import com.indusnetwork.api.WebSyncQueue;
+import com.indusnetwork.api.WebhookServer;
+
+import java.util.concurrent.TimeUnit;
 
 public class IndusNetworkPlugin extends JavaPlugin implements Listener {
     
     private static IndusNetworkPlugin instance;
+    private ExecutorManager executorManager;
+    private MetricsManager metricsManager;
     private WebAPIManager webAPIManager;
+    private WebSyncQueue webSyncQueue;
+    private WebhookServer webhookServer;
     private DatabaseManager databaseManager;
     private DeliveryManager deliveryManager;
     private RankManager rankManager;
     private CoinManager coinManager;
     private StatsManager statsManager;
+    private PlayerStateManager playerStateManager;
+    private DailyBonusManager dailyBonusManager;
+    private StatsSampler statsSampler;
     
     @Override
     public void onEnable() {
@@ -46,11 +59,73 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
     
     @Override
     public void onDisable() {
+        // Stop accepting website pushes
+        if (webhookServer != null) {
+            webhookServer.stop();
+        }
+        
+        // Other plugins must stop changing balances before the final coin flush
+        getServer().getServicesManager().unregisterAll(this);
+        
         // Save any pending data
         if (statsManager != null) {
             statsManager.saveAllStats();
         }
         
+        // Hand changed balances to the outbox; anything not delivered is replayed on the next start
+        if (coinManager != null && webAPIManager != null) {
+            try {
+                coinManager.flushCoins().get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().warning("Could not deliver pending coin balances: " + e.getMessage());
+            }
+            
+            // Write the last coin changes and their sync marks to the journal
+            try {
+                coinManager.getJournal().flush().get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().warning("Could not write the coin journal: " + e.getMessage());
+            }
+        }
+        
+        // Store the hours of stats history changed since the last flush
+        if (statsManager != null) {
+            try {
+                statsManager.getHistory().flush().get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().warning("Could not save stats history: " + e.getMessage());
+            }
+        }
+        
+        // Store today's daily bonus claims
+        if (dailyBonusManager != null) {
+            try {
+                dailyBonusManager.flush().get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().warning("Could not save daily bonus claims: " + e.getMessage());
+            }
+        }
+        
+        // Send any coalesced updates that are still queued
+        if (webSyncQueue != null) {
+            try {
+                // A timer flush may still be in flight; send what queued up behind it too
+                webSyncQueue.flush().thenCompose(ignored -> webSyncQueue.flush()).get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                getLogger().warning("Could not flush pending website updates: " + e.getMessage());
+            }
+        }
+        
+        // Release HTTP connections
+        if (webAPIManager != null) {
+            webAPIManager.shutdown();
+        }
+        
+        // Stop worker pools
+        if (executorManager != null) {
+            executorManager.shutdown();
+        }
+        
         // Close database connections
         if (databaseManager != null) {
             databaseManager.close();
@@ -65,12 +140,21 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
             com.indusnetwork.utils.MessageUtils.setPlugin(this);
 
             // Initialize core managers
+            this.executorManager = new ExecutorManager(this);
+            this.metricsManager = new MetricsManager(this);
             this.webAPIManager = new WebAPIManager(this);
+            this.webSyncQueue = new WebSyncQueue(this, webAPIManager);
             this.databaseManager = new DatabaseManager(this);
             this.deliveryManager = new DeliveryManager(this);
             this.rankManager = new RankManager(this);
             this.coinManager = new CoinManager(this);
             this.statsManager = new StatsManager(this);
+            this.statsSampler = new StatsSampler(this);
+            this.playerStateManager = new PlayerStateManager(this);
+            coinManager.openJournal();
+            this.dailyBonusManager = new DailyBonusManager(this);
+            registerEconomy();
+            startWebhookServer();
 
             getLogger().info("All managers initialized successfully!");
         } catch (Exception e) {
@@ -79,9 +163,43 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
         }
     }
     
+    private void registerEconomy() {
+        if (!getConfig().getBoolean("settings.vault_economy", true)) {
+            return;
+        }
+        if (getServer().getPluginManager().getPlugin("Vault") == null) {
+            getLogger().warning("Vault not found, coins will not be available to other plugins");
+            return;
+        }
+        
+        getServer().getServicesManager().register(Economy.class, new VaultEconomyProvider(this, coinManager), this, ServicePriority.Normal);
+        getLogger().info("Registered IndusNetwork coins as the Vault economy");
+    }
+    
+    private void startWebhookServer() {
+        if (!getConfig().getBoolean("website.webhook.enabled", false)) {
+            return;
+        }
+        
+        String secret = getConfig().getString("website.webhook_secret", "");
+        if (secret.isEmpty() || secret.equals("your_webhook_secret_here")) {
+            getLogger().warning("Webhook receiver is enabled but website.webhook_secret is not set, falling back to polling");
+            return;
+        }
+        
+        WebhookServer server = new WebhookServer(this, secret);
+        try {
+            server.start();
+            this.webhookServer = server;
+        } catch (Exception e) {
+            getLogger().severe("Failed to start webhook receiver, falling back to polling: " + e.getMessage());
+        }
+    }
+    
     private void registerCommands() {
         // Register custom commands
         getCommand("coins").setExecutor(new CoinsCommand(this));
+        getCommand("baltop").setExecutor(new BaltopCommand(this));
         getCommand("rank").setExecutor(new RankCommand(this));
         getCommand("stats").setExecutor(new StatsCommand(this));
         getCommand("verify").setExecutor(new VerifyCommand(this));
@@ -101,15 +219,84 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
     }
     
     private void startBackgroundTasks() {
+        // Flush coalesced website updates
+        long batchInterval = 20L * Math.max(1, getConfig().getInt("sync.batch_interval", 5));
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            webSyncQueue.flush();
+        }, batchInterval, batchInterval);
+        
+        // Write changed coin balances behind to the website
+        long coinInterval = 20L * Math.max(1, getConfig().getInt("sync.coin_flush_interval", 5));
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            coinManager.flushCoins();
+        }, coinInterval, coinInterval);
+        
+        // Write coin changes to the journal in batches, and fold them into snapshots
+        long journalInterval = 20L * Math.max(1, getConfig().getInt("coin_journal.flush_interval", 1));
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            coinManager.getJournal().flush();
+        }, journalInterval, journalInterval);
+        long snapshotInterval = 20L * Math.max(1, getConfig().getInt("coin_journal.snapshot_interval", 300));
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            coinManager.getJournal().snapshot();
+        }, snapshotInterval, snapshotInterval);
+        
+        // Hand out daily bonuses to players online across midnight, and store claims in batches.
+        // Claiming reads the online players, so it runs on the main thread.
+        if (dailyBonusManager.isEnabled()) {
+            getServer().getScheduler().runTaskTimer(this, () -> {
+                dailyBonusManager.claimOnline();
+            }, 20L * 60L, 20L * 60L); // 1 minute
+            long claimInterval = 20L * Math.max(1, getConfig().getInt("daily_bonus.flush_interval", 10));
+            getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+                dailyBonusManager.flush();
+            }, claimInterval, claimInterval);
+        }
+        
+        // Read join baselines and sample statistics no event reports, a few players per tick
+        // on the main thread. Runs even with sampling off, which only leaves its queue empty.
+        getServer().getScheduler().runTaskTimer(this, statsSampler, 1L, 1L);
+        
+        // Sync stats of players whose debounce delay has passed
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            statsManager.flushDirty();
+        }, 10L, 10L); // half a second
+        
+        // Count playtime into the stats history, and store changed days of it
+        if (statsManager.getHistory().isEnabled()) {
+            getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+                statsManager.recordPlaytimeMinute();
+            }, 20L * 60L, 20L * 60L); // 1 minute
+            long historyInterval = 20L * Math.max(1, getConfig().getInt("stats_history.flush_interval", 300));
+            getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+                statsManager.getHistory().flush();
+            }, historyInterval, historyInterval);
+        }
+        
         // Sync player data every 5 minutes
         getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
             syncOnlinePlayersWithWeb();
         }, 20L * 60L * 5L, 20L * 60L * 5L); // 5 minutes
         
-        // Check for pending deliveries every 30 seconds
+        // Replay website updates that have not been acknowledged yet
+        long replayInterval = 20L * Math.max(1, getConfig().getInt("outbox.replay_interval", 30));
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            webAPIManager.replayOutbox();
+        }, 20L * 5L, replayInterval);
+        
+        // Check for pending deliveries every 30 seconds, or only as a slow
+        // reconciliation when the website pushes deliveries to the webhook receiver
+        long deliveryInterval = webhookServer != null
+            ? 20L * Math.max(30, getConfig().getInt("website.webhook.reconcile_interval", 300))
+            : 20L * 30L;
         getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
             deliveryManager.checkPendingDeliveries();
-        }, 20L * 30L, 20L * 30L); // 30 seconds
+        }, deliveryInterval, deliveryInterval);
+        
+        // Evict players who have been offline for too long
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            playerStateManager.evictExpired();
+        }, 20L * 60L, 20L * 60L); // 1 minute
         
         // Save stats every 10 minutes
         getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
@@ -119,8 +306,8 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
     
     private void syncOnlinePlayersWithWeb() {
         for (Player player : getServer().getOnlinePlayers()) {
-            webAPIManager.updatePlayerStatus(player.getUniqueId(), true);
-            statsManager.syncPlayerStats(player);
+            webSyncQueue.queueStatus(player.getUniqueId(), true);
+            statsManager.syncPlayerStats(player.getUniqueId());
         }
     }
     
@@ -129,10 +316,22 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
         return instance;
     }
     
+    public ExecutorManager getExecutorManager() {
+        return executorManager;
+    }
+    
+    public MetricsManager getMetricsManager() {
+        return metricsManager;
+    }
+    
     public WebAPIManager getWebAPIManager() {
         return webAPIManager;
     }
     
+    public WebSyncQueue getWebSyncQueue() {
+        return webSyncQueue;
+    }
+    
     public DatabaseManager getDatabaseManager() {
         return databaseManager;
     }
@@ -152,4 +351,16 @@ public class IndusNetworkPlugin extends JavaPlugin implements Listener {
     public StatsManager getStatsManager() {
         return statsManager;
     }
+    
+    public PlayerStateManager getPlayerStateManager() {
+        return playerStateManager;
+    }
+    
+    public StatsSampler getStatsSampler() {
+        return statsSampler;
+    }
+    
+    public DailyBonusManager getDailyBonusManager() {
+        return dailyBonusManager;
+    }
 }
@@ -0,0 +1,49 @@
+package com.indusnetwork.api;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of concurrent calls to one class of website endpoints so a
+ * slow endpoint cannot hold every connection and worker. Calls over the
+ * limit are rejected immediately instead of queueing.
+ */
+public class Bulkhead {
+    
+    private final String name;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    
+    public Bulkhead(String name, int maxConcurrent) {
+        this.name = name;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent);
+    }
+    
+    /**
+     * Take a permit, throwing FullException if none is free
+     */
+    public void acquire() {
+        if (!permits.tryAcquire()) {
+            throw new FullException(name);
+        }
+    }
+    
+    public void release() {
+        permits.release();
+    }
+    
+    public int getActiveCalls() {
+        return maxConcurrent - permits.availablePermits();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    // Thrown when all permits of the bulkhead are in use
+    public static class FullException extends RuntimeException {
+        public FullException(String name) {
+            super("Too many concurrent requests to " + name, null, false, false);
+        }
+    }
+}
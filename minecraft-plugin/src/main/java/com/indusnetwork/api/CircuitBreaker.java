@@ -0,0 +1,92 @@
+package com.indusnetwork.api;
+
+/**
+ * Consecutive-failure circuit breaker for one website endpoint.
+ * After failureThreshold failures in a row the circuit opens and calls fail
+ * fast for openMillis. A single probe call is then let through; its result
+ * decides whether the circuit closes again or stays open.
+ */
+public class CircuitBreaker {
+    
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+    
+    /**
+     * Check whether a call may go through. Throws OpenException when the
+     * circuit is open so callers fail fast.
+     */
+    public synchronized void acquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                throw new OpenException(name);
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                throw new OpenException(name);
+            }
+            probeInFlight = true;
+        }
+    }
+    
+    /**
+     * Record a successful call. Returns true if this closed the circuit.
+     */
+    public synchronized boolean onSuccess() {
+        boolean wasOpen = state != State.CLOSED;
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        return wasOpen;
+    }
+    
+    /**
+     * Record a failed call. Returns true if this opened the circuit.
+     */
+    public synchronized boolean onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+            return true;
+        }
+        return false;
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    // Thrown instead of calling the website while the circuit is open
+    public static class OpenException extends RuntimeException {
+        public OpenException(String name) {
+            super("Circuit open for " + name, null, false, false);
+        }
+    }
+}
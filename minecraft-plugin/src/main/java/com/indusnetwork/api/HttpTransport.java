@@ -0,0 +1,98 @@
+package com.indusnetwork.api;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport used by WebAPIManager to talk to the website.
+ * Implementations must be non-blocking: send() returns immediately and
+ * completes the future once the response has been received.
+ */
+public interface HttpTransport {
+    
+    /**
+     * Send a request to the website
+     */
+    CompletableFuture<Response> send(Request request);
+    
+    /**
+     * Release any resources held by the transport
+     */
+    void close();
+    
+    // Request sent through the transport
+    class Request {
+        private final String method;
+        private final String endpoint;
+        private final byte[] body;
+        private final Map<String, String> headers;
+        private String route;
+        private boolean idempotent;
+        
+        public Request(String method, String endpoint, byte[] body) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.body = body;
+            this.headers = new LinkedHashMap<>();
+            this.route = endpoint;
+            this.idempotent = "GET".equals(method) || "HEAD".equals(method) || "PUT".equals(method) || "DELETE".equals(method);
+        }
+        
+        public Request header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+        
+        /**
+         * Endpoint template such as /api/players/{uuid}, used to group requests per endpoint
+         */
+        public Request route(String route) {
+            this.route = route;
+            return this;
+        }
+        
+        /**
+         * Mark whether the request can safely be sent more than once
+         */
+        public Request idempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+        
+        public String getMethod() { return method; }
+        public String getEndpoint() { return endpoint; }
+        public String getRoute() { return route; }
+        public boolean isIdempotent() { return idempotent; }
+        public byte[] getBody() { return body; }
+        public Map<String, String> getHeaders() { return Collections.unmodifiableMap(headers); }
+    }
+    
+    // Response received from the transport
+    class Response {
+        private final int statusCode;
+        private final byte[] body;
+        private final Map<String, List<String>> headers;
+        
+        public Response(int statusCode, byte[] body, Map<String, List<String>> headers) {
+            this.statusCode = statusCode;
+            this.body = body != null ? body : new byte[0];
+            this.headers = headers != null ? headers : Collections.emptyMap();
+        }
+        
+        public int getStatusCode() { return statusCode; }
+        public byte[] getBody() { return body; }
+        public boolean isSuccess() { return statusCode >= 200 && statusCode < 300; }
+        
+        public String getHeader(String name) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (entry.getKey() != null && entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.indusnetwork.api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * HttpTransport backed by a single shared java.net.http.HttpClient.
+ * The client keeps a keep-alive connection pool per host and multiplexes
+ * requests over one connection when the website negotiates HTTP/2.
+ * Response handling runs on the supplied executor. The transport does not
+ * own it: closing the transport leaves it running, and the owner of the
+ * pool shuts it down.
+ */
+public class JdkHttpTransport implements HttpTransport {
+    
+    private final String baseUrl;
+    private final Duration readTimeout;
+    private final HttpClient client;
+    
+    public JdkHttpTransport(String baseUrl, Duration connectTimeout, Duration readTimeout, HttpClient.Version version, Executor executor) {
+        this.baseUrl = baseUrl;
+        this.readTimeout = readTimeout;
+        this.client = HttpClient.newBuilder()
+            .version(version)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+    }
+    
+    @Override
+    public CompletableFuture<Response> send(Request request) {
+        HttpRequest.BodyPublisher publisher = request.getBody() != null
+            ? HttpRequest.BodyPublishers.ofByteArray(request.getBody())
+            : HttpRequest.BodyPublishers.noBody();
+        
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + request.getEndpoint()))
+            .timeout(readTimeout)
+            .method(request.getMethod(), publisher);
+        
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+            .thenApply(response -> new Response(response.statusCode(), response.body(), response.headers().map()));
+    }
+    
+    @Override
+    public void close() {
+        try {
+            // Java 21+: stop the selector thread and drop pooled connections now
+            HttpClient.class.getMethod("shutdownNow").invoke(client);
+        } catch (ReflectiveOperationException e) {
+            // Older runtimes release them once the client is no longer referenced
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.indusnetwork.api;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pull parser over a UTF-8 JSON document held in a byte array.
+ * Callers walk the document token by token and copy values straight into
+ * their own objects, so no intermediate maps or boxed numbers are created.
+ * Unknown members can be skipped with skipValue().
+ */
+public class JsonReader {
+    
+    private final byte[] data;
+    private final int end;
+    private int pos;
+    
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+    
+    public JsonReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+    
+    public Token peek() {
+        skipWhitespace();
+        if (pos >= end) {
+            return Token.END;
+        }
+        switch (data[pos]) {
+            case '{': return Token.BEGIN_OBJECT;
+            case '}': return Token.END_OBJECT;
+            case '[': return Token.BEGIN_ARRAY;
+            case ']': return Token.END_ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+            case 'f': return Token.BOOLEAN;
+            case 'n': return Token.NULL;
+            default: return Token.NUMBER;
+        }
+    }
+    
+    public void beginObject() {
+        expect('{');
+    }
+    
+    public void endObject() {
+        skipSeparator();
+        expect('}');
+    }
+    
+    public void beginArray() {
+        expect('[');
+    }
+    
+    public void endArray() {
+        skipSeparator();
+        expect(']');
+    }
+    
+    /**
+     * Whether the current object or array has another member
+     */
+    public boolean hasNext() {
+        skipSeparator();
+        return pos < end && data[pos] != '}' && data[pos] != ']';
+    }
+    
+    public String nextName() {
+        skipSeparator();
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+    
+    public String nextString() {
+        skipWhitespace();
+        if (peek() == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        expect('"');
+        int start = pos;
+        // Fast path: no escapes, decode the raw bytes in one go
+        while (pos < end && data[pos] != '"' && data[pos] != '\\') {
+            pos++;
+        }
+        if (pos < end && data[pos] == '"') {
+            return new String(data, start, pos++ - start, StandardCharsets.UTF_8);
+        }
+        
+        StringBuilder builder = new StringBuilder(pos - start + 16);
+        builder.append(new String(data, start, pos - start, StandardCharsets.UTF_8));
+        while (pos < end) {
+            byte b = data[pos];
+            if (b == '"') {
+                pos++;
+                return builder.toString();
+            }
+            if (b == '\\') {
+                builder.append(readEscape());
+                continue;
+            }
+            int segment = pos;
+            while (pos < end && data[pos] != '"' && data[pos] != '\\') {
+                pos++;
+            }
+            builder.append(new String(data, segment, pos - segment, StandardCharsets.UTF_8));
+        }
+        throw error("Unterminated string");
+    }
+    
+    public long nextLong() {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = false;
+        if (pos < end && data[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+            value = value * 10 + (data[pos++] - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            throw error("Expected a number");
+        }
+        if (pos < end && (data[pos] == '.' || data[pos] == 'e' || data[pos] == 'E')) {
+            // Fractional or exponent form; rare in our payloads, so take the slow path
+            pos = start;
+            return (long) nextDouble();
+        }
+        return negative ? -value : value;
+    }
+    
+    public int nextInt() {
+        long value = nextLong();
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw error("Number out of int range");
+        }
+        return (int) value;
+    }
+    
+    public double nextDouble() {
+        skipWhitespace();
+        int start = pos;
+        while (pos < end && "+-.eE0123456789".indexOf(data[pos]) >= 0) {
+            pos++;
+        }
+        if (start == pos) {
+            throw error("Expected a number");
+        }
+        return Double.parseDouble(new String(data, start, pos - start, StandardCharsets.US_ASCII));
+    }
+    
+    public boolean nextBoolean() {
+        skipWhitespace();
+        if (matchLiteral("true")) {
+            return true;
+        }
+        if (matchLiteral("false")) {
+            return false;
+        }
+        throw error("Expected a boolean");
+    }
+    
+    public void nextNull() {
+        skipWhitespace();
+        if (!matchLiteral("null")) {
+            throw error("Expected null");
+        }
+    }
+    
+    /**
+     * Skip the next value, including any nested objects or arrays
+     */
+    public void skipValue() {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                while (hasNext()) {
+                    nextName();
+                    skipValue();
+                }
+                endObject();
+                break;
+            case BEGIN_ARRAY:
+                beginArray();
+                while (hasNext()) {
+                    skipValue();
+                }
+                endArray();
+                break;
+            case STRING:
+                skipString();
+                break;
+            case BOOLEAN:
+                nextBoolean();
+                break;
+            case NULL:
+                nextNull();
+                break;
+            case NUMBER:
+                nextDouble();
+                break;
+            default:
+                throw error("Unexpected end of input");
+        }
+    }
+    
+    private void skipString() {
+        expect('"');
+        while (pos < end) {
+            byte b = data[pos++];
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return;
+            }
+        }
+        throw error("Unterminated string");
+    }
+    
+    private char readEscape() {
+        pos++; // backslash
+        if (pos >= end) {
+            throw error("Unterminated escape");
+        }
+        byte b = data[pos++];
+        switch (b) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                if (pos + 4 > end) {
+                    throw error("Invalid unicode escape");
+                }
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(data[pos++], 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape");
+                    }
+                    code = (code << 4) | digit;
+                }
+                return (char) code;
+            default:
+                throw error("Invalid escape");
+        }
+    }
+    
+    private boolean matchLiteral(String literal) {
+        if (pos + literal.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (data[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        pos += literal.length();
+        return true;
+    }
+    
+    private void skipSeparator() {
+        skipWhitespace();
+        if (pos < end && data[pos] == ',') {
+            pos++;
+            skipWhitespace();
+        }
+    }
+    
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = data[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+    
+    private void expect(char c) {
+        skipWhitespace();
+        if (pos >= end || data[pos] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + pos);
+    }
+    
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END
+    }
+}
@@ -0,0 +1,215 @@
+package com.indusnetwork.api;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Minimal streaming JSON writer that encodes UTF-8 straight into a growing
+ * byte buffer, one writer per payload. Numbers and booleans are written
+ * without boxing and UUIDs without building an intermediate String.
+ */
+public class JsonWriter {
+    
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final int MAX_DEPTH = 32;
+    
+    private byte[] buffer;
+    private int size;
+    // Whether the container at each nesting level still has no members
+    private final boolean[] empty = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+    
+    public JsonWriter() {
+        this(256);
+    }
+    
+    public JsonWriter(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+    
+    public JsonWriter beginObject() {
+        beforeValue();
+        write((byte) '{');
+        push();
+        return this;
+    }
+    
+    public JsonWriter endObject() {
+        depth--;
+        write((byte) '}');
+        return this;
+    }
+    
+    public JsonWriter beginArray() {
+        beforeValue();
+        write((byte) '[');
+        push();
+        return this;
+    }
+    
+    public JsonWriter endArray() {
+        depth--;
+        write((byte) ']');
+        return this;
+    }
+    
+    public JsonWriter name(String name) {
+        separate();
+        writeString(name);
+        write((byte) ':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+    
+    public JsonWriter value(UUID value) {
+        beforeValue();
+        ensureCapacity(38);
+        buffer[size++] = '"';
+        writeHex(value.getMostSignificantBits() >>> 32, 8);
+        buffer[size++] = '-';
+        writeHex(value.getMostSignificantBits() >>> 16, 4);
+        buffer[size++] = '-';
+        writeHex(value.getMostSignificantBits(), 4);
+        buffer[size++] = '-';
+        writeHex(value.getLeastSignificantBits() >>> 48, 4);
+        buffer[size++] = '-';
+        writeHex(value.getLeastSignificantBits(), 12);
+        buffer[size++] = '"';
+        return this;
+    }
+    
+    public JsonWriter value(long value) {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+    
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+    
+    /**
+     * Copy of the encoded payload
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+    
+    private void push() {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nesting too deep");
+        }
+        empty[depth++] = true;
+    }
+    
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separate();
+        }
+    }
+    
+    private void separate() {
+        if (depth > 0) {
+            if (!empty[depth - 1]) {
+                write((byte) ',');
+            }
+            empty[depth - 1] = false;
+        }
+    }
+    
+    private void writeHex(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[size + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        size += digits;
+    }
+    
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii("-9223372036854775808");
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte swap = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swap;
+        }
+    }
+    
+    private void writeString(String value) {
+        ensureCapacity(value.length() + 2);
+        buffer[size++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write((byte) '\\');
+                write((byte) c);
+            } else if (c < 0x20) {
+                writeAscii("\\u00");
+                ensureCapacity(2);
+                writeHex(c, 2);
+            } else if (c < 0x80) {
+                write((byte) c);
+            } else if (c < 0x800) {
+                write((byte) (0xC0 | (c >> 6)));
+                write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write((byte) (0xF0 | (codePoint >> 18)));
+                write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                write((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                write((byte) (0xE0 | (c >> 12)));
+                write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        write((byte) '"');
+    }
+    
+    private void writeAscii(String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+    
+    private void write(byte b) {
+        ensureCapacity(1);
+        buffer[size++] = b;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.indusnetwork.api;
+
+import com.indusnetwork.api.WebAPIManager.PlayerData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Size-bounded LRU cache of website player profiles.
+ * Each entry keeps the validators (ETag / Last-Modified) of the response it
+ * came from, so a stale entry can be revalidated with a conditional GET and
+ * served from memory when the website answers 304 Not Modified.
+ * Invalidation leaves a marker behind, so a fetch that started before the
+ * invalidation cannot put the outdated profile back.
+ */
+public class ProfileCache {
+    
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<UUID, Entry> entries;
+    private long clock;
+    private long hits;
+    private long revalidations;
+    private long misses;
+    
+    public ProfileCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        // Access order, so the least recently used profile is evicted first
+        this.entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, ProfileCache.Entry> eldest) {
+                return size() > ProfileCache.this.maxEntries;
+            }
+        };
+    }
+    
+    /**
+     * Cached profile that is still within its TTL, or null
+     */
+    public synchronized PlayerData getFresh(UUID playerId) {
+        Entry entry = entries.get(playerId);
+        if (entry != null && entry.data != null && !isExpired(entry)) {
+            hits++;
+            return entry.data;
+        }
+        return null;
+    }
+    
+    /**
+     * Cached entry regardless of age, used to build a conditional request
+     */
+    public synchronized Entry getEntry(UUID playerId) {
+        Entry entry = entries.get(playerId);
+        return entry != null && entry.data != null ? entry : null;
+    }
+    
+    /**
+     * Stamp to pass to put() for a fetch that is about to start
+     */
+    public synchronized long beginFetch() {
+        return ++clock;
+    }
+    
+    /**
+     * Store a downloaded profile together with the validators of its response,
+     * unless the profile was invalidated after the fetch started
+     */
+    public synchronized void put(UUID playerId, PlayerData data, String etag, String lastModified, long fetchStamp) {
+        misses++;
+        Entry current = entries.get(playerId);
+        if (current != null && current.data == null && current.stamp > fetchStamp) {
+            return;
+        }
+        entries.put(playerId, new Entry(data, etag, lastModified, System.currentTimeMillis(), ++clock));
+    }
+    
+    /**
+     * The website confirmed the cached profile is unchanged; restart its TTL.
+     * Returns the cached profile, or null if it was invalidated meanwhile.
+     */
+    public synchronized PlayerData revalidated(UUID playerId, Entry expected) {
+        Entry entry = entries.get(playerId);
+        if (entry != expected) {
+            return null;
+        }
+        revalidations++;
+        entries.put(playerId, new Entry(entry.data, entry.etag, entry.lastModified, System.currentTimeMillis(), ++clock));
+        return entry.data;
+    }
+    
+    /**
+     * Drop a profile we know to be out of date, e.g. after changing it ourselves
+     */
+    public synchronized void invalidate(UUID playerId) {
+        entries.put(playerId, new Entry(null, null, null, 0L, ++clock));
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    public synchronized int size() {
+        int size = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.data != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+    
+    public synchronized long getHits() { return hits; }
+    public synchronized long getRevalidations() { return revalidations; }
+    public synchronized long getMisses() { return misses; }
+    
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.fetchedAt >= ttlMillis;
+    }
+    
+    // Cached profile and the validators of the response it came from
+    public static class Entry {
+        private final PlayerData data;
+        private final String etag;
+        private final String lastModified;
+        private final long fetchedAt;
+        private final long stamp;
+        
+        Entry(PlayerData data, String etag, String lastModified, long fetchedAt, long stamp) {
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+            this.stamp = stamp;
+        }
+        
+        public PlayerData getData() { return data; }
+        public String getEtag() { return etag; }
+        public String getLastModified() { return lastModified; }
+        public long getFetchedAt() { return fetchedAt; }
+    }
+}
@@ -0,0 +1,151 @@
+package com.indusnetwork.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * HttpTransport decorator that protects the server from a slow or broken
+ * website. Each endpoint route gets its own circuit breaker and bulkhead,
+ * and idempotent requests are retried with exponential backoff and full
+ * jitter. While a circuit is open requests fail fast with
+ * CircuitBreaker.OpenException instead of waiting for a timeout.
+ */
+public class ResilientTransport implements HttpTransport {
+    
+    private final HttpTransport delegate;
+    private final Executor executor;
+    private final Logger logger;
+    private final Settings settings;
+    private final Map<String, CircuitBreaker> breakers;
+    private final Map<String, Bulkhead> bulkheads;
+    
+    public ResilientTransport(HttpTransport delegate, Settings settings, Executor executor, Logger logger) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.executor = executor;
+        this.logger = logger;
+        this.breakers = new ConcurrentHashMap<>();
+        this.bulkheads = new ConcurrentHashMap<>();
+    }
+    
+    @Override
+    public CompletableFuture<Response> send(Request request) {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(request.getRoute(),
+            route -> new Bulkhead(route, settings.maxConcurrent));
+        try {
+            bulkhead.acquire();
+        } catch (Bulkhead.FullException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        int maxAttempts = request.isIdempotent() ? settings.maxRetries + 1 : 1;
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        attempt(request, 1, maxAttempts, result);
+        return result.whenComplete((response, throwable) -> bulkhead.release());
+    }
+    
+    private void attempt(Request request, int attempt, int maxAttempts, CompletableFuture<Response> result) {
+        CircuitBreaker breaker = getBreaker(request.getRoute());
+        try {
+            breaker.acquire();
+        } catch (CircuitBreaker.OpenException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        
+        CompletableFuture<Response> sent;
+        try {
+            sent = delegate.send(request);
+        } catch (RuntimeException e) {
+            // Settled like a failed call, so the breaker probe and the bulkhead permit are released
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((response, throwable) -> {
+            // Network errors and server errors count against the circuit; any other answer means the site is up
+            if (throwable != null || response.getStatusCode() >= 500) {
+                if (breaker.onFailure()) {
+                    logger.warning("Website endpoint " + breaker.getName() + " is failing, circuit opened for "
+                        + (settings.openMillis / 1000) + "s");
+                }
+            } else if (breaker.onSuccess()) {
+                logger.info("Website endpoint " + breaker.getName() + " recovered, circuit closed");
+            }
+            
+            boolean retryable = throwable != null || isRetryableStatus(response.getStatusCode());
+            if (!retryable) {
+                result.complete(response);
+                return;
+            }
+            
+            if (attempt >= maxAttempts) {
+                if (throwable != null) {
+                    result.completeExceptionally(unwrap(throwable));
+                } else {
+                    result.complete(response);
+                }
+                return;
+            }
+            
+            long delay = backoffDelay(attempt);
+            CompletableFuture.runAsync(() -> attempt(request, attempt + 1, maxAttempts, result),
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor));
+        });
+    }
+    
+    private boolean isRetryableStatus(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+    
+    // Full jitter: random delay between 0 and the capped exponential backoff
+    private long backoffDelay(int attempt) {
+        long exponential = settings.baseDelayMillis << Math.min(attempt - 1, 20);
+        long capped = Math.min(settings.maxDelayMillis, exponential);
+        return ThreadLocalRandom.current().nextLong(capped + 1);
+    }
+    
+    private Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+    
+    private CircuitBreaker getBreaker(String route) {
+        return breakers.computeIfAbsent(route,
+            name -> new CircuitBreaker(name, settings.failureThreshold, settings.openMillis));
+    }
+    
+    /**
+     * Circuit breakers created so far, keyed by route
+     */
+    public Map<String, CircuitBreaker> getBreakers() {
+        return breakers;
+    }
+    
+    @Override
+    public void close() {
+        delegate.close();
+    }
+    
+    // Tuning for the resilience layer
+    public static class Settings {
+        private final int failureThreshold;
+        private final long openMillis;
+        private final int maxRetries;
+        private final long baseDelayMillis;
+        private final long maxDelayMillis;
+        private final int maxConcurrent;
+        
+        public Settings(int failureThreshold, long openMillis, int maxRetries, long baseDelayMillis, long maxDelayMillis, int maxConcurrent) {
+            this.failureThreshold = failureThreshold;
+            this.openMillis = openMillis;
+            this.maxRetries = Math.max(0, maxRetries);
+            this.baseDelayMillis = Math.max(1, baseDelayMillis);
+            this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.indusnetwork.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Registry of in-flight calls keyed by request identity.
+ * Concurrent callers with the same key share the first caller's future, so
+ * only one underlying request is sent and its parsed result is handed to
+ * everyone. The key is released as soon as the call completes.
+ */
+public class SingleFlight {
+    
+    private final ConcurrentMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong collapsed = new AtomicLong();
+    
+    /**
+     * Run the call, or join the identical call that is already running
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            collapsed.incrementAndGet();
+            // Callers get their own dependent future so they cannot complete the shared one
+            return ((CompletableFuture<T>) existing).thenApply(result -> result);
+        }
+        
+        executed.incrementAndGet();
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, throwable) -> {
+            inFlight.remove(key, flight);
+            if (throwable != null) {
+                flight.completeExceptionally(throwable);
+            } else {
+                flight.complete(value);
+            }
+        });
+        return flight.thenApply(value -> value);
+    }
+    
+    /**
+     * Stop handing out the running call for this key, e.g. because its
+     * result is known to be outdated. Later callers start a new call.
+     */
+    public void forget(String key) {
+        inFlight.remove(key);
+    }
+    
+    /**
+     * Number of calls that were actually sent
+     */
+    public long getExecutedCount() {
+        return executed.get();
+    }
+    
+    /**
+     * Number of calls that joined an identical call already in flight
+     */
+    public long getCollapsedCount() {
+        return collapsed.get();
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
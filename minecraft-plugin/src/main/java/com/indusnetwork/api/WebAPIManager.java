@@ -1,127 +1,218 @@
 package com.indusnetwork.api;
 
 import com.indusnetwork.IndusNetworkPlugin;
-import org.bukkit.entity.Player;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
+import com.indusnetwork.managers.CoinTransaction;
+import com.indusnetwork.managers.MetricsManager;
 
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class WebAPIManager {
     
+    private static final String PROFILE_ROUTE = "/api/players/{uuid}";
+    private static final String COIN_TRANSACTIONS_ROUTE = "/api/players/{uuid}/coins/transactions";
+    private static final String BULK_COIN_TRANSACTIONS_ROUTE = "/api/coins/transactions";
+    
     private final IndusNetworkPlugin plugin;
-    private final String baseUrl;
     private final String apiKey;
-    private final JSONParser jsonParser;
+    private final HttpTransport transport;
+    private final WebOutbox outbox;
+    private final ProfileCache profileCache;
+    private final SingleFlight singleFlight;
     
     public WebAPIManager(IndusNetworkPlugin plugin) {
+        this(plugin, createDefaultTransport(plugin));
+    }
+    
+    public WebAPIManager(IndusNetworkPlugin plugin, HttpTransport transport) {
         this.plugin = plugin;
-        this.baseUrl = plugin.getConfig().getString("website.url", "https://indusnetwork.highms.pro");
         this.apiKey = plugin.getConfig().getString("website.api_key", "");
-        this.jsonParser = new JSONParser();
+        this.transport = transport;
+        this.outbox = new WebOutbox(
+            new File(plugin.getDataFolder(), "outbox.log"),
+            this::sendOutboxEntry,
+            plugin.getLogger(),
+            plugin.getConfig().getBoolean("outbox.fsync", true),
+            plugin.getConfig().getInt("outbox.compact_threshold", 500)
+        );
+        this.profileCache = new ProfileCache(
+            plugin.getConfig().getLong("profile_cache.ttl", 60) * 1000L,
+            plugin.getConfig().getInt("profile_cache.max_entries", 1000)
+        );
+        this.singleFlight = new SingleFlight();
+        
+        try {
+            outbox.open();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to open website outbox: " + e.getMessage());
+        }
+    }
+    
+    private static HttpTransport createDefaultTransport(IndusNetworkPlugin plugin) {
+        String baseUrl = plugin.getConfig().getString("website.url", "https://indusnetwork.highms.pro");
+        int connectTimeout = plugin.getConfig().getInt("website.connect_timeout", 5000);
+        int readTimeout = plugin.getConfig().getInt("website.read_timeout", 10000);
+        HttpClient.Version version = "HTTP_1_1".equalsIgnoreCase(plugin.getConfig().getString("website.http_version", "HTTP_2"))
+            ? HttpClient.Version.HTTP_1_1
+            : HttpClient.Version.HTTP_2;
+        
+        HttpTransport transport = new JdkHttpTransport(baseUrl, Duration.ofMillis(connectTimeout), Duration.ofMillis(readTimeout), version,
+            plugin.getExecutorManager().getWebExecutor());
+        
+        ResilientTransport.Settings settings = new ResilientTransport.Settings(
+            plugin.getConfig().getInt("website.resilience.failure_threshold", 5),
+            plugin.getConfig().getLong("website.resilience.open_duration", 30) * 1000L,
+            plugin.getConfig().getInt("website.resilience.max_retries", 2),
+            plugin.getConfig().getLong("website.resilience.retry_base_delay", 200),
+            plugin.getConfig().getLong("website.resilience.retry_max_delay", 2000),
+            plugin.getConfig().getInt("website.resilience.max_concurrent", 16)
+        );
+        return new ResilientTransport(transport, settings, plugin.getExecutorManager().getWebExecutor(), plugin.getLogger());
     }
     
     /**
      * Verify player account with website
      */
     public CompletableFuture<Boolean> verifyPlayer(UUID playerId, String verificationCode) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject requestData = new JSONObject();
-                requestData.put("player_id", playerId.toString());
-                requestData.put("verification_code", verificationCode);
-                
-                JSONObject response = makeAPIRequest("/api/auth/verify-minecraft", "POST", requestData);
-                if (response != null) {
-                    return (Boolean) response.getOrDefault("success", false);
+        byte[] requestData = WebJsonCodec.encodeVerify(playerId, verificationCode);
+        
+        return makeAPIRequest("/api/auth/verify-minecraft", "POST", requestData)
+            .thenApply(response -> {
+                boolean success = response != null && WebJsonCodec.decodeSuccess(response);
+                if (success) {
+                    // Verification changes the profile, so the next read must hit the website
+                    invalidateProfile(playerId);
                 }
+                return success;
+            })
+            .exceptionally(throwable -> {
+                plugin.getLogger().severe("Failed to verify player: " + throwable.getMessage());
                 return false;
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to verify player: " + e.getMessage());
-                return false;
-            }
-        });
+            });
     }
     
     /**
      * Update player online status
      */
     public CompletableFuture<Void> updatePlayerStatus(UUID playerId, boolean online) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                JSONObject requestData = new JSONObject();
-                requestData.put("player_id", playerId.toString());
-                requestData.put("online", online);
-                requestData.put("timestamp", System.currentTimeMillis());
-                
-                makeAPIRequest("/api/players/status", "POST", requestData);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed to update player status: " + e.getMessage());
-            }
-        });
+        byte[] requestData = WebJsonCodec.encodeStatus(playerId, online, System.currentTimeMillis());
+        
+        return makeAPIRequest("/api/players/status", "POST", requestData).<Void>thenApply(response -> null)
+            .exceptionally(throwable -> {
+                plugin.getLogger().warning("Failed to update player status: " + throwable.getMessage());
+                return null;
+            });
     }
     
     /**
-     * Get player data from website
+     * Get player data from website. Profiles are cached for profile_cache.ttl;
+     * after that the cached copy is revalidated with a conditional request and
+     * reused if the website answers 304 Not Modified. Concurrent reads of the
+     * same profile share one request.
      */
     public CompletableFuture<PlayerData> getPlayerData(UUID playerId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject response = makeAPIRequest("/api/players/" + playerId.toString(), "GET", null);
-                if (response != null && (Boolean) response.getOrDefault("success", false)) {
-                    JSONObject playerData = (JSONObject) response.get("data");
-                    return new PlayerData(
-                        (String) playerData.get("username"),
-                        (String) playerData.get("rank"),
-                        ((Number) playerData.get("coins")).intValue(),
-                        (Boolean) playerData.getOrDefault("verified", false)
-                    );
-                }
-                return null;
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to get player data: " + e.getMessage());
-                return null;
+        return lookupPlayer(playerId).thenApply(PlayerLookup::getData);
+    }
+    
+    /**
+     * Get player data from website like {@link #getPlayerData(UUID)}, telling
+     * a player the website does not know (404) apart from a website that
+     * could not be asked
+     */
+    public CompletableFuture<PlayerLookup> lookupPlayer(UUID playerId) {
+        PlayerData fresh = profileCache.getFresh(playerId);
+        if (fresh != null) {
+            return CompletableFuture.completedFuture(PlayerLookup.found(fresh));
+        }
+        
+        String endpoint = expandRoute(PROFILE_ROUTE, playerId.toString());
+        return singleFlight.execute("GET " + endpoint, () -> fetchPlayerData(playerId, endpoint, profileCache.getEntry(playerId)))
+            .exceptionally(throwable -> {
+                plugin.getLogger().severe("Failed to get player data: " + throwable.getMessage());
+                return PlayerLookup.UNAVAILABLE;
+            });
+    }
+    
+    private CompletableFuture<PlayerLookup> fetchPlayerData(UUID playerId, String endpoint, ProfileCache.Entry cached) {
+        long fetchStamp = profileCache.beginFetch();
+        HttpTransport.Request request = buildRequest(PROFILE_ROUTE, endpoint, "GET", null);
+        if (cached != null && cached.getEtag() != null) {
+            request.header("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            request.header("If-Modified-Since", cached.getLastModified());
+        }
+        
+        return sendAPIRequest(request).thenCompose(response -> {
+            if (response == null) {
+                return CompletableFuture.completedFuture(PlayerLookup.UNAVAILABLE);
+            }
+            if (response.getStatusCode() == 304 && cached != null) {
+                PlayerData unchanged = profileCache.revalidated(playerId, cached);
+                // Invalidated or evicted while the request was in flight; fetch the full profile instead
+                return unchanged != null ? CompletableFuture.completedFuture(PlayerLookup.found(unchanged)) : fetchPlayerData(playerId, endpoint, null);
+            }
+            if (response.getStatusCode() == 404) {
+                return CompletableFuture.completedFuture(PlayerLookup.UNKNOWN);
+            }
+            if (!response.isSuccess()) {
+                plugin.getLogger().warning("API request failed with code " + response.getStatusCode() + " for endpoint: " + endpoint);
+                return CompletableFuture.completedFuture(PlayerLookup.UNAVAILABLE);
             }
+            
+            PlayerData playerData = WebJsonCodec.decodePlayerData(response.getBody());
+            if (playerData == null) {
+                return CompletableFuture.completedFuture(PlayerLookup.UNAVAILABLE);
+            }
+            profileCache.put(playerId, playerData, response.getHeader("ETag"), response.getHeader("Last-Modified"), fetchStamp);
+            return CompletableFuture.completedFuture(PlayerLookup.found(playerData));
         });
     }
     
     /**
-     * Update player rank
+     * Update player rank. The change is recorded in the outbox first and
+     * replayed until the website accepts it.
      */
     public CompletableFuture<Boolean> updatePlayerRank(UUID playerId, String rank) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject requestData = new JSONObject();
-                requestData.put("rank", rank);
-                
-                JSONObject response = makeAPIRequest("/api/players/" + playerId.toString() + "/rank", "PATCH", requestData);
-                return response != null && (Boolean) response.getOrDefault("success", false);
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to update player rank: " + e.getMessage());
-                return false;
-            }
-        });
+        return submitProfileMutation(playerId, "rank:" + playerId, "/api/players/{uuid}/rank", "PATCH", WebJsonCodec.encodeRank(rank));
     }
     
     /**
-     * Update player coins
+     * Send a batch of coin transactions. The website applies each
+     * transaction id once, so batches are safe to retry and replay, and
+     * they never replace each other in the outbox.
      */
-    public CompletableFuture<Boolean> updatePlayerCoins(UUID playerId, int coins) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject requestData = new JSONObject();
-                requestData.put("coins", coins);
-                
-                JSONObject response = makeAPIRequest("/api/players/" + playerId.toString() + "/coins", "PATCH", requestData);
-                return response != null && (Boolean) response.getOrDefault("success", false);
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to update player coins: " + e.getMessage());
-                return false;
+    public CompletableFuture<Boolean> submitCoinTransactions(UUID playerId, List<CoinTransaction> transactions) {
+        return submitProfileMutation(playerId, null, COIN_TRANSACTIONS_ROUTE, "POST", WebJsonCodec.encodeCoinTransactions(transactions));
+    }
+    
+    /**
+     * Send coin transactions of many players as one request, e.g. an admin
+     * payout to everyone online. Applied once per transaction id, like
+     * per-player batches.
+     */
+    public CompletableFuture<Boolean> submitBulkCoinTransactions(List<CoinTransaction> transactions) {
+        Set<UUID> players = new HashSet<>();
+        for (CoinTransaction transaction : transactions) {
+            if (players.add(transaction.getPlayerId())) {
+                invalidateProfile(transaction.getPlayerId());
+            }
+        }
+        return submitMutation(null, BULK_COIN_TRANSACTIONS_ROUTE, "POST", WebJsonCodec.encodeBulkCoinTransactions(transactions)).thenApply(delivered -> {
+            for (UUID playerId : players) {
+                invalidateProfile(playerId);
             }
+            return delivered;
         });
     }
     
@@ -129,43 +220,49 @@ public class WebAPIManager {
      * Sync player statistics with website
      */
     public CompletableFuture<Boolean> syncPlayerStats(UUID playerId, PlayerStats stats) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject requestData = new JSONObject();
-                requestData.put("kills", stats.getKills());
-                requestData.put("deaths", stats.getDeaths());
-                requestData.put("playtime", stats.getPlaytime());
-                requestData.put("blocks_broken", stats.getBlocksBroken());
-                requestData.put("blocks_placed", stats.getBlocksPlaced());
-                requestData.put("distance_walked", stats.getDistanceWalked());
-                requestData.put("last_seen", System.currentTimeMillis());
-                
-                JSONObject response = makeAPIRequest("/api/players/" + playerId.toString() + "/stats", "POST", requestData);
-                return response != null && (Boolean) response.getOrDefault("success", false);
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to sync player stats: " + e.getMessage());
+        byte[] requestData = WebJsonCodec.encodeStats(stats, System.currentTimeMillis());
+        
+        return makeAPIRequest("/api/players/{uuid}/stats", "POST", requestData, playerId.toString())
+            .thenApply(response -> response != null && WebJsonCodec.decodeSuccess(response))
+            .exceptionally(throwable -> {
+                plugin.getLogger().severe("Failed to sync player stats: " + throwable.getMessage());
                 return false;
+            });
+    }
+    
+    /**
+     * Send coalesced updates for many players in a single request
+     */
+    public CompletableFuture<BulkResult> syncPlayersBulk(Collection<PlayerUpdate> updates) {
+        byte[] requestData = WebJsonCodec.encodeBulk(updates, System.currentTimeMillis());
+        
+        return sendAPIRequest("/api/players/bulk", "/api/players/bulk", "POST", requestData).thenApply(response -> {
+            if (response == null) {
+                return BulkResult.FAILED;
+            }
+            int code = response.getStatusCode();
+            if (code == 404 || code == 405 || code == 501) {
+                return BulkResult.UNSUPPORTED;
             }
+            if (code >= 400 && code < 500 && code != 408 && code != 429) {
+                return BulkResult.REJECTED;
+            }
+            return response.isSuccess() ? BulkResult.SUCCESS : BulkResult.FAILED;
         });
     }
     
     /**
-     * Check for pending deliveries
+     * Check for pending deliveries. Completes with null, not an empty array,
+     * if the website could not be asked or did not report success.
      */
     public CompletableFuture<DeliveryData[]> checkPendingDeliveries(UUID playerId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject response = makeAPIRequest("/api/store/delivery/pending/" + playerId.toString(), "GET", null);
-                if (response != null && (Boolean) response.getOrDefault("success", false)) {
-                    // Parse delivery data from response
-                    // This would need to be implemented based on your API structure
-                    return new DeliveryData[0]; // Placeholder
-                }
-                return new DeliveryData[0];
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to check pending deliveries: " + e.getMessage());
-                return new DeliveryData[0];
-            }
+        String route = "/api/store/delivery/pending/{uuid}";
+        return singleFlight.execute("GET " + expandRoute(route, playerId.toString()), () ->
+            makeAPIRequest(route, "GET", null, playerId.toString()).thenApply(response ->
+                response != null ? WebJsonCodec.decodeDeliveries(response) : null)
+        ).exceptionally(throwable -> {
+            plugin.getLogger().severe("Failed to check pending deliveries: " + throwable.getMessage());
+            return null;
         });
     }
     
@@ -173,63 +270,222 @@ public class WebAPIManager {
      * Mark delivery as completed
      */
     public CompletableFuture<Boolean> markDeliveryCompleted(String deliveryId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JSONObject requestData = new JSONObject();
-                requestData.put("status", "completed");
-                requestData.put("completed_at", System.currentTimeMillis());
-                
-                JSONObject response = makeAPIRequest("/api/store/delivery/" + deliveryId + "/complete", "POST", requestData);
-                return response != null && (Boolean) response.getOrDefault("success", false);
-            } catch (Exception e) {
-                plugin.getLogger().severe("Failed to mark delivery as completed: " + e.getMessage());
+        byte[] requestData = WebJsonCodec.encodeDeliveryCompleted(System.currentTimeMillis());
+        
+        return makeAPIRequest("/api/store/delivery/{id}/complete", "POST", requestData, deliveryId)
+            .thenApply(response -> response != null && WebJsonCodec.decodeSuccess(response))
+            .exceptionally(throwable -> {
+                plugin.getLogger().severe("Failed to mark delivery as completed: " + throwable.getMessage());
                 return false;
+            });
+    }
+    
+    /**
+     * Replay outbox entries the website has not acknowledged yet
+     */
+    public void replayOutbox() {
+        outbox.drain();
+    }
+    
+    public WebOutbox getOutbox() {
+        return outbox;
+    }
+    
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+    
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+    
+    /**
+     * Close the outbox and release the HTTP transport
+     */
+    public void shutdown() {
+        outbox.close();
+        transport.close();
+    }
+    
+    /**
+     * Make HTTP request to API. The route may contain {placeholders}, which
+     * are filled with params in order. The returned future completes with the
+     * raw JSON response body, or null if the request failed.
+     */
+    private CompletableFuture<byte[]> makeAPIRequest(String route, String method, byte[] data, String... params) {
+        String endpoint = expandRoute(route, params);
+        return sendAPIRequest(route, endpoint, method, data).thenApply(response -> {
+            if (response == null) {
+                return null;
+            }
+            if (response.isSuccess()) {
+                return response.getBody();
+            } else {
+                plugin.getLogger().warning("API request failed with code " + response.getStatusCode() + " for endpoint: " + endpoint);
+                return (byte[]) null;
             }
         });
     }
     
     /**
-     * Make HTTP request to API
+     * Send HTTP request to API. The returned future completes with the raw
+     * response, or null if the request could not be sent.
      */
-    private JSONObject makeAPIRequest(String endpoint, String method, JSONObject data) {
-        try {
-            URL url = new URL(baseUrl + endpoint);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            
-            // Set request properties
-            connection.setRequestMethod(method);
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Authorization", "Bearer " + apiKey);
-            connection.setRequestProperty("User-Agent", "IndusNetwork-Plugin/1.0.0");
-            
-            // Send data if present
-            if (data != null && ("POST".equals(method) || "PATCH".equals(method) || "PUT".equals(method))) {
-                connection.setDoOutput(true);
-                try (OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream())) {
-                    writer.write(data.toJSONString());
-                    writer.flush();
-                }
-            }
-            
-            // Read response
-            int responseCode = connection.getResponseCode();
-            if (responseCode >= 200 && responseCode < 300) {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                    StringBuilder response = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        response.append(line);
-                    }
-                    return (JSONObject) jsonParser.parse(response.toString());
-                }
+    private CompletableFuture<HttpTransport.Response> sendAPIRequest(String route, String endpoint, String method, byte[] data) {
+        return sendAPIRequest(buildRequest(route, endpoint, method, encodeBody(method, data)));
+    }
+    
+    private CompletableFuture<HttpTransport.Response> sendAPIRequest(HttpTransport.Request request) {
+        String endpoint = request.getEndpoint();
+        return sendMetered(request).exceptionally(throwable -> {
+            Throwable cause = unwrap(throwable);
+            if (cause instanceof CircuitBreaker.OpenException || cause instanceof Bulkhead.FullException) {
+                // Already reported when the circuit opened; fail fast without flooding the console
+                plugin.getLogger().fine("Skipped API request to " + endpoint + ": " + cause.getMessage());
             } else {
-                plugin.getLogger().warning("API request failed with code " + responseCode + " for endpoint: " + endpoint);
-                return null;
+                plugin.getLogger().severe("Failed to make API request to " + endpoint + ": " + cause.getMessage());
             }
-            
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to make API request to " + endpoint + ": " + e.getMessage());
             return null;
+        });
+    }
+    
+    /**
+     * Record a mutation in the outbox and send it in order with earlier ones.
+     * A newer mutation with the same key replaces one that is still pending.
+     */
+    private CompletableFuture<Boolean> submitMutation(String key, String route, String method, byte[] data, String... params) {
+        return outbox.submit(key, method, route, expandRoute(route, params), encodeBody(method, data));
+    }
+    
+    /**
+     * Submit a profile change to the outbox. The cached profile is dropped
+     * now and again once the website applied the change, so a read that
+     * raced with the change cannot keep serving the old value.
+     */
+    private CompletableFuture<Boolean> submitProfileMutation(UUID playerId, String key, String route, String method, byte[] data) {
+        invalidateProfile(playerId);
+        return submitMutation(key, route, method, data, playerId.toString()).thenApply(delivered -> {
+            invalidateProfile(playerId);
+            return delivered;
+        });
+    }
+    
+    /**
+     * Drop the cached profile and detach any read already in flight for it,
+     * e.g. because the website told us the profile changed
+     */
+    public void invalidateProfile(UUID playerId) {
+        profileCache.invalidate(playerId);
+        singleFlight.forget("GET " + expandRoute(PROFILE_ROUTE, playerId.toString()));
+    }
+    
+    private CompletableFuture<HttpTransport.Response> sendOutboxEntry(WebOutbox.Entry entry) {
+        return sendMetered(buildRequest(entry.getRoute(), entry.getEndpoint(), entry.getMethod(), entry.getBody()));
+    }
+    
+    /**
+     * Send through the transport and record latency, outcome and payload sizes per route
+     */
+    private CompletableFuture<HttpTransport.Response> sendMetered(HttpTransport.Request request) {
+        MetricsManager.Endpoint metrics = plugin.getMetricsManager().endpoint(MetricsManager.WEB, request.getRoute());
+        long start = System.nanoTime();
+        return transport.send(request).whenComplete((response, throwable) -> {
+            long sent = request.getBody() != null ? request.getBody().length : 0L;
+            if (throwable == null) {
+                metrics.record(start, response.getStatusCode() >= 400, false, sent, response.getBody().length);
+                return;
+            }
+            Throwable cause = unwrap(throwable);
+            if (cause instanceof CircuitBreaker.OpenException || cause instanceof Bulkhead.FullException) {
+                // Never reached the website; keep it out of the latency figures
+                metrics.recordRejected();
+            } else {
+                metrics.record(start, true, cause instanceof HttpTimeoutException, sent, 0L);
+            }
+        });
+    }
+    
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+    
+    private HttpTransport.Request buildRequest(String route, String endpoint, String method, byte[] body) {
+        // Every PATCH endpoint sets an absolute value and coin transactions are
+        // deduplicated by id on the website, so both are safe to retry
+        return new HttpTransport.Request(method, endpoint, body)
+            .route(route)
+            .idempotent("GET".equals(method) || "PATCH".equals(method) || "PUT".equals(method)
+                || COIN_TRANSACTIONS_ROUTE.equals(route) || BULK_COIN_TRANSACTIONS_ROUTE.equals(route))
+            .header("Content-Type", "application/json")
+            .header("Authorization", "Bearer " + apiKey)
+            .header("User-Agent", "IndusNetwork-Plugin/1.0.0");
+    }
+    
+    private static byte[] encodeBody(String method, byte[] data) {
+        if ("POST".equals(method) || "PATCH".equals(method) || "PUT".equals(method)) {
+            return data;
+        }
+        return null;
+    }
+    
+    private static String expandRoute(String route, String... params) {
+        if (params.length == 0) {
+            return route;
+        }
+        StringBuilder endpoint = new StringBuilder(route.length() + 40);
+        int param = 0;
+        int index = 0;
+        while (index < route.length()) {
+            int open = route.indexOf('{', index);
+            if (open < 0 || param >= params.length) {
+                endpoint.append(route, index, route.length());
+                break;
+            }
+            int close = route.indexOf('}', open);
+            endpoint.append(route, index, open).append(params[param++]);
+            index = close + 1;
+        }
+        return endpoint.toString();
+    }
+    
+    // Outcome of a bulk sync request
+    public enum BulkResult {
+        SUCCESS,
+        // The website has no bulk endpoint (404, 405 or 501)
+        UNSUPPORTED,
+        // The website refused the batch for good, e.g. with 400
+        REJECTED,
+        // Not answered or a transient error; worth sending again
+        FAILED
+    }
+    
+    /**
+     * Outcome of a profile lookup: the player's data, a player the website
+     * does not know, or no answer from the website
+     */
+    public static final class PlayerLookup {
+        static final PlayerLookup UNKNOWN = new PlayerLookup(Status.UNKNOWN, null);
+        static final PlayerLookup UNAVAILABLE = new PlayerLookup(Status.UNAVAILABLE, null);
+        
+        private final Status status;
+        private final PlayerData data;
+        
+        private PlayerLookup(Status status, PlayerData data) {
+            this.status = status;
+            this.data = data;
+        }
+        
+        static PlayerLookup found(PlayerData data) {
+            return new PlayerLookup(Status.FOUND, data);
+        }
+        
+        public Status getStatus() { return status; }
+        public PlayerData getData() { return data; }
+        
+        public enum Status {
+            FOUND,
+            UNKNOWN,
+            UNAVAILABLE
         }
     }
     
@@ -275,6 +531,22 @@ public class WebAPIManager {
         public long getDistanceWalked() { return distanceWalked; }
     }
     
+    public static class PlayerUpdate {
+        private final UUID playerId;
+        private final Boolean online;
+        private final PlayerStats stats;
+        
+        public PlayerUpdate(UUID playerId, Boolean online, PlayerStats stats) {
+            this.playerId = playerId;
+            this.online = online;
+            this.stats = stats;
+        }
+        
+        public UUID getPlayerId() { return playerId; }
+        public Boolean getOnline() { return online; }
+        public PlayerStats getStats() { return stats; }
+    }
+    
     public static class DeliveryData {
         private final String id;
         private final String itemId;
@@ -290,4 +562,24 @@ public class WebAPIManager {
         public String getItemId() { return itemId; }
         public String[] getCommands() { return commands; }
     }
+    
+    // Event pushed by the website to the webhook receiver
+    public static class WebhookEvent {
+        private final String type;
+        private final UUID playerId;
+        private final DeliveryData delivery;
+        private final String rank;
+        
+        public WebhookEvent(String type, UUID playerId, DeliveryData delivery, String rank) {
+            this.type = type;
+            this.playerId = playerId;
+            this.delivery = delivery;
+            this.rank = rank;
+        }
+        
+        public String getType() { return type; }
+        public UUID getPlayerId() { return playerId; }
+        public DeliveryData getDelivery() { return delivery; }
+        public String getRank() { return rank; }
+    }
 }
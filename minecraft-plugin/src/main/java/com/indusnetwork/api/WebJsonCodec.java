@@ -0,0 +1,315 @@
+package com.indusnetwork.api;
+
+import com.indusnetwork.api.WebAPIManager.DeliveryData;
+import com.indusnetwork.api.WebAPIManager.PlayerData;
+import com.indusnetwork.api.WebAPIManager.PlayerStats;
+import com.indusnetwork.api.WebAPIManager.PlayerUpdate;
+import com.indusnetwork.api.WebAPIManager.WebhookEvent;
+import com.indusnetwork.managers.CoinTransaction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes and decodes the fixed website payloads.
+ * Requests are written straight into a buffer sized for the payload and
+ * responses are read straight into the data classes, skipping unknown fields.
+ * Each payload gets its own writer, so no buffer outlives its request or
+ * stays attached to a server thread across a plugin reload.
+ */
+public final class WebJsonCodec {
+    
+    private static final DeliveryData[] NO_DELIVERIES = new DeliveryData[0];
+    
+    private WebJsonCodec() {
+    }
+    
+    public static byte[] encodeVerify(UUID playerId, String verificationCode) {
+        return writer().beginObject()
+            .name("player_id").value(playerId)
+            .name("verification_code").value(verificationCode)
+            .endObject().toByteArray();
+    }
+    
+    public static byte[] encodeStatus(UUID playerId, boolean online, long timestamp) {
+        return writer().beginObject()
+            .name("player_id").value(playerId)
+            .name("online").value(online)
+            .name("timestamp").value(timestamp)
+            .endObject().toByteArray();
+    }
+    
+    public static byte[] encodeRank(String rank) {
+        return writer().beginObject()
+            .name("rank").value(rank)
+            .endObject().toByteArray();
+    }
+    
+    public static byte[] encodeCoinTransactions(Collection<CoinTransaction> transactions) {
+        JsonWriter writer = writer(transactions.size() * 128).beginObject().name("transactions").beginArray();
+        for (CoinTransaction transaction : transactions) {
+            writer.beginObject()
+                .name("id").value(transaction.getId())
+                .name("delta").value(transaction.getDelta())
+                .name("reason").value(transaction.getReason())
+                .name("created_at").value(transaction.getCreatedAt())
+                .endObject();
+        }
+        return writer.endArray().endObject().toByteArray();
+    }
+    
+    public static byte[] encodeBulkCoinTransactions(Collection<CoinTransaction> transactions) {
+        JsonWriter writer = writer(transactions.size() * 176).beginObject().name("transactions").beginArray();
+        for (CoinTransaction transaction : transactions) {
+            writer.beginObject()
+                .name("player_id").value(transaction.getPlayerId())
+                .name("id").value(transaction.getId())
+                .name("delta").value(transaction.getDelta())
+                .name("reason").value(transaction.getReason())
+                .name("created_at").value(transaction.getCreatedAt())
+                .endObject();
+        }
+        return writer.endArray().endObject().toByteArray();
+    }
+    
+    public static byte[] encodeStats(PlayerStats stats, long lastSeen) {
+        JsonWriter writer = writer();
+        writeStats(writer, stats, lastSeen);
+        return writer.toByteArray();
+    }
+    
+    public static byte[] encodeBulk(Collection<PlayerUpdate> updates, long timestamp) {
+        JsonWriter writer = writer(updates.size() * 224).beginObject().name("updates").beginArray();
+        for (PlayerUpdate update : updates) {
+            writer.beginObject().name("player_id").value(update.getPlayerId());
+            if (update.getOnline() != null) {
+                writer.name("online").value(update.getOnline().booleanValue());
+            }
+            if (update.getStats() != null) {
+                writer.name("stats");
+                writeStats(writer, update.getStats(), timestamp);
+            }
+            writer.endObject();
+        }
+        return writer.endArray()
+            .name("timestamp").value(timestamp)
+            .endObject().toByteArray();
+    }
+    
+    public static byte[] encodeDeliveryCompleted(long completedAt) {
+        return writer().beginObject()
+            .name("status").value("completed")
+            .name("completed_at").value(completedAt)
+            .endObject().toByteArray();
+    }
+    
+    /**
+     * Read the top level "success" flag, false if it is missing
+     */
+    public static boolean decodeSuccess(byte[] body) {
+        JsonReader reader = new JsonReader(body);
+        boolean success = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("success".equals(reader.nextName()) && reader.peek() == JsonReader.Token.BOOLEAN) {
+                success = reader.nextBoolean();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return success;
+    }
+    
+    /**
+     * Read {"success": true, "data": {...}} into PlayerData, or null if unsuccessful
+     */
+    public static PlayerData decodePlayerData(byte[] body) {
+        JsonReader reader = new JsonReader(body);
+        boolean success = false;
+        PlayerData data = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("success".equals(name) && reader.peek() == JsonReader.Token.BOOLEAN) {
+                success = reader.nextBoolean();
+            } else if ("data".equals(name) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                data = readPlayerData(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return success ? data : null;
+    }
+    
+    /**
+     * Read {"success": true, "data": [...]} into deliveries, or null if unsuccessful
+     */
+    public static DeliveryData[] decodeDeliveries(byte[] body) {
+        JsonReader reader = new JsonReader(body);
+        boolean success = false;
+        DeliveryData[] deliveries = NO_DELIVERIES;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("success".equals(name) && reader.peek() == JsonReader.Token.BOOLEAN) {
+                success = reader.nextBoolean();
+            } else if ("data".equals(name) && reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                deliveries = readDeliveries(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return success ? deliveries : null;
+    }
+    
+    /**
+     * Read a pushed webhook event such as
+     * {"type": "delivery", "player_id": "...", "delivery": {...}} or
+     * {"type": "rank_update", "player_id": "...", "rank": "vip"}
+     */
+    public static WebhookEvent decodeWebhook(byte[] body) {
+        JsonReader reader = new JsonReader(body);
+        String type = null;
+        UUID playerId = null;
+        DeliveryData delivery = null;
+        String rank = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonReader.Token token = reader.peek();
+            if ("type".equals(name) && token == JsonReader.Token.STRING) {
+                type = reader.nextString();
+            } else if ("player_id".equals(name) && token == JsonReader.Token.STRING) {
+                playerId = UUID.fromString(reader.nextString());
+            } else if ("delivery".equals(name) && token == JsonReader.Token.BEGIN_OBJECT) {
+                delivery = readDelivery(reader);
+            } else if ("rank".equals(name) && token == JsonReader.Token.STRING) {
+                rank = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (type == null || playerId == null) {
+            throw new IllegalArgumentException("Webhook event needs a type and player_id");
+        }
+        return new WebhookEvent(type, playerId, delivery, rank);
+    }
+    
+    private static PlayerData readPlayerData(JsonReader reader) {
+        String username = null;
+        String rank = null;
+        int coins = 0;
+        boolean verified = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonReader.Token token = reader.peek();
+            if ("username".equals(name) && token == JsonReader.Token.STRING) {
+                username = reader.nextString();
+            } else if ("rank".equals(name) && token == JsonReader.Token.STRING) {
+                rank = reader.nextString();
+            } else if ("coins".equals(name) && token == JsonReader.Token.NUMBER) {
+                coins = reader.nextInt();
+            } else if ("verified".equals(name) && token == JsonReader.Token.BOOLEAN) {
+                verified = reader.nextBoolean();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new PlayerData(username, rank, coins, verified);
+    }
+    
+    private static DeliveryData[] readDeliveries(JsonReader reader) {
+        List<DeliveryData> deliveries = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
+            DeliveryData delivery = readDelivery(reader);
+            if (delivery != null) {
+                deliveries.add(delivery);
+            }
+        }
+        reader.endArray();
+        return deliveries.toArray(NO_DELIVERIES);
+    }
+    
+    // One delivery object, or null if it has no id
+    private static DeliveryData readDelivery(JsonReader reader) {
+        String id = null;
+        String itemId = null;
+        String[] commands = new String[0];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                id = readId(reader);
+            } else if ("item_id".equals(name) || "itemId".equals(name)) {
+                itemId = readId(reader);
+            } else if ("commands".equals(name) && reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+                commands = readStrings(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return id != null ? new DeliveryData(id, itemId, commands) : null;
+    }
+    
+    // Ids may be sent as strings or numbers
+    private static String readId(JsonReader reader) {
+        switch (reader.peek()) {
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return Long.toString(reader.nextLong());
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+    
+    private static String[] readStrings(JsonReader reader) {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonReader.Token.STRING) {
+                values.add(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return values.toArray(new String[0]);
+    }
+    
+    private static void writeStats(JsonWriter writer, PlayerStats stats, long lastSeen) {
+        writer.beginObject()
+            .name("kills").value(stats.getKills())
+            .name("deaths").value(stats.getDeaths())
+            .name("playtime").value(stats.getPlaytime())
+            .name("blocks_broken").value(stats.getBlocksBroken())
+            .name("blocks_placed").value(stats.getBlocksPlaced())
+            .name("distance_walked").value(stats.getDistanceWalked())
+            .name("last_seen").value(lastSeen)
+            .endObject();
+    }
+    
+    private static JsonWriter writer() {
+        return new JsonWriter();
+    }
+    
+    // Sized up front so large batches do not grow the buffer step by step
+    private static JsonWriter writer(int expectedSize) {
+        return new JsonWriter(Math.max(256, 64 + expectedSize));
+    }
+}
@@ -0,0 +1,391 @@
+package com.indusnetwork.api;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Append-only, file-backed outbox for website mutations.
+ * Every mutation is written (and fsynced) to outbox.log before it is sent,
+ * and acknowledged once the website accepted it. Unacknowledged entries are
+ * replayed in order on the next drain, including after a restart. A newer
+ * entry with the same key supersedes older pending ones, and the log is
+ * compacted down to the pending entries once enough acknowledgements pile up.
+ */
+public class WebOutbox {
+    
+    private static final String PENDING = "P";
+    private static final String ACK = "A";
+    
+    private final File file;
+    private final Sender sender;
+    private final Logger logger;
+    private final boolean fsync;
+    private final int compactThreshold;
+    private final LinkedHashMap<Long, Entry> pending;
+    private final Map<String, Long> pendingByKey;
+    private final Map<Long, CompletableFuture<Boolean>> waiters;
+    private final AtomicBoolean draining;
+    
+    private FileOutputStream stream;
+    private Writer writer;
+    private long nextSequence = 1;
+    private int acksSinceCompaction;
+    
+    public WebOutbox(File file, Sender sender, Logger logger, boolean fsync, int compactThreshold) {
+        this.file = file;
+        this.sender = sender;
+        this.logger = logger;
+        this.fsync = fsync;
+        this.compactThreshold = Math.max(1, compactThreshold);
+        this.pending = new LinkedHashMap<>();
+        this.pendingByKey = new HashMap<>();
+        this.waiters = new HashMap<>();
+        this.draining = new AtomicBoolean(false);
+    }
+    
+    /**
+     * Load pending entries left by a previous run and open the log for appending
+     */
+    public synchronized void open() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readLine(line);
+                }
+            }
+        }
+        
+        // Start from a compacted log so it only contains entries that still need sending
+        rewrite();
+        
+        if (!pending.isEmpty()) {
+            logger.info("Outbox has " + pending.size() + " unsent website update(s) from a previous run");
+        }
+    }
+    
+    private void readLine(String line) {
+        String[] parts = line.split("\t", -1);
+        try {
+            if (PENDING.equals(parts[0]) && parts.length == 7) {
+                long sequence = Long.parseLong(parts[1]);
+                String key = parts[2].isEmpty() ? null : parts[2];
+                byte[] body = parts[6].isEmpty() ? null : Base64.getDecoder().decode(parts[6]);
+                Entry entry = new Entry(sequence, key, parts[3], parts[4], parts[5], body);
+                addPending(entry);
+                nextSequence = Math.max(nextSequence, sequence + 1);
+            } else if (ACK.equals(parts[0]) && parts.length == 2) {
+                removePending(Long.parseLong(parts[1]));
+            }
+        } catch (IllegalArgumentException e) {
+            // A torn final line from a crash mid-write; everything before it is intact
+            logger.warning("Skipping corrupt outbox line: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Record a mutation and start sending it. Entries with a non-null key
+     * replace any older pending entry with the same key. The returned future
+     * completes with true once the website accepted the mutation, including
+     * after replays, and with a {@link RejectedException} if the website
+     * refused it for good. It completes with false if the outbox is closed
+     * first; the entry then stays on disk for the next start. If the entry
+     * cannot be written to the log it is not queued at all and the future
+     * fails with the IOException.
+     */
+    public CompletableFuture<Boolean> submit(String key, String method, String route, String endpoint, byte[] body) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        synchronized (this) {
+            Entry entry = new Entry(nextSequence++, key, method, route, endpoint, body);
+            try {
+                append(entry);
+            } catch (IOException e) {
+                // Only kept in memory it would be reported as queued but lost on a crash
+                logger.severe("Failed to write website update to outbox: " + e.getMessage());
+                result.completeExceptionally(e);
+                return result;
+            }
+            
+            if (key != null) {
+                Long superseded = pendingByKey.get(key);
+                if (superseded != null) {
+                    removePending(superseded);
+                    acknowledge(superseded);
+                    CompletableFuture<Boolean> previous = waiters.remove(superseded);
+                    if (previous != null) {
+                        result.whenComplete((success, throwable) -> {
+                            if (throwable != null) {
+                                previous.completeExceptionally(throwable);
+                            } else {
+                                previous.complete(success);
+                            }
+                        });
+                    }
+                }
+            }
+            
+            addPending(entry);
+            waiters.put(entry.sequence, result);
+        }
+        
+        drain();
+        return result;
+    }
+    
+    /**
+     * Send pending entries in order until the log is empty or a send fails
+     */
+    public void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        sendNext();
+    }
+    
+    private void sendNext() {
+        Entry entry;
+        synchronized (this) {
+            entry = pending.isEmpty() ? null : pending.values().iterator().next();
+        }
+        if (entry == null) {
+            draining.set(false);
+            // An entry may have been submitted between the check and releasing the flag
+            boolean more;
+            synchronized (this) {
+                more = !pending.isEmpty();
+            }
+            if (more) {
+                drain();
+            }
+            return;
+        }
+        
+        CompletableFuture<HttpTransport.Response> sent;
+        try {
+            sent = sender.send(entry);
+        } catch (RuntimeException e) {
+            // Handled like a failed send, so the drain flag is released and the entry replayed
+            logger.warning("Failed to send " + entry.method + " " + entry.endpoint + ": " + e);
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((response, throwable) -> {
+            boolean delivered = throwable == null && response != null && response.isSuccess();
+            boolean rejected = throwable == null && response != null && isPermanentRejection(response.getStatusCode());
+            
+            if (!delivered && !rejected) {
+                // Keep order: stop here and replay from this entry on the next drain.
+                // Its waiter stays registered until the entry gets through.
+                draining.set(false);
+                return;
+            }
+            
+            if (rejected) {
+                logger.warning("Website rejected " + entry.method + " " + entry.endpoint
+                    + " with code " + response.getStatusCode() + ", dropping it from the outbox");
+            }
+            
+            CompletableFuture<Boolean> waiter;
+            synchronized (this) {
+                waiter = waiters.remove(entry.sequence);
+                // A newer entry for the same key may already have superseded this one
+                if (pending.containsKey(entry.sequence)) {
+                    removePending(entry.sequence);
+                    acknowledge(entry.sequence);
+                }
+            }
+            if (waiter != null) {
+                if (delivered) {
+                    waiter.complete(true);
+                } else {
+                    waiter.completeExceptionally(new RejectedException(entry, response.getStatusCode()));
+                }
+            }
+            sendNext();
+        });
+    }
+    
+    private boolean isPermanentRejection(int statusCode) {
+        return statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+    }
+    
+    /**
+     * Number of mutations not yet accepted by the website
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Flush and close the log. Pending entries stay on disk for the next start.
+     */
+    public synchronized void close() {
+        try {
+            if (acksSinceCompaction > 0) {
+                rewrite();
+            }
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to close outbox: " + e.getMessage());
+        }
+        
+        for (CompletableFuture<Boolean> waiter : waiters.values()) {
+            waiter.complete(false);
+        }
+        waiters.clear();
+    }
+    
+    private void addPending(Entry entry) {
+        pending.put(entry.sequence, entry);
+        if (entry.key != null) {
+            pendingByKey.put(entry.key, entry.sequence);
+        }
+    }
+    
+    private void removePending(long sequence) {
+        Entry entry = pending.remove(sequence);
+        if (entry != null && entry.key != null) {
+            pendingByKey.remove(entry.key, sequence);
+        }
+    }
+    
+    private void acknowledge(long sequence) {
+        try {
+            writeLine(ACK + "\t" + sequence);
+            if (++acksSinceCompaction >= compactThreshold) {
+                rewrite();
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to record outbox acknowledgement: " + e.getMessage());
+        }
+    }
+    
+    private void append(Entry entry) throws IOException {
+        writeLine(format(entry));
+    }
+    
+    private static String format(Entry entry) {
+        String body = entry.body != null ? Base64.getEncoder().encodeToString(entry.body) : "";
+        return PENDING + "\t" + entry.sequence + "\t" + (entry.key != null ? entry.key : "") + "\t"
+            + entry.method + "\t" + entry.route + "\t" + entry.endpoint + "\t" + body;
+    }
+    
+    private void writeLine(String line) throws IOException {
+        if (writer == null) {
+            openWriter();
+        }
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+        if (fsync) {
+            stream.getFD().sync();
+        }
+    }
+    
+    private void openWriter() throws IOException {
+        stream = new FileOutputStream(file, true);
+        writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+    }
+    
+    // Checkpoint: atomically replace the log with only the pending entries,
+    // written in one go and synced once
+    private void rewrite() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            stream = null;
+        }
+        
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream tempStream = new FileOutputStream(temp);
+             Writer tempWriter = new BufferedWriter(new OutputStreamWriter(tempStream, StandardCharsets.UTF_8))) {
+            for (Entry entry : pending.values()) {
+                tempWriter.write(format(entry));
+                tempWriter.write('\n');
+            }
+            tempWriter.flush();
+            tempStream.getFD().sync();
+        }
+        
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        acksSinceCompaction = 0;
+        openWriter();
+    }
+    
+    /**
+     * The website refused an entry for good, e.g. with 400 or 404. The entry
+     * has been dropped from the outbox.
+     */
+    public static class RejectedException extends RuntimeException {
+        private final int statusCode;
+        
+        RejectedException(Entry entry, int statusCode) {
+            super("Website rejected " + entry.method + " " + entry.endpoint + " with code " + statusCode);
+            this.statusCode = statusCode;
+        }
+        
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+    
+    /**
+     * Sends one outbox entry to the website
+     */
+    public interface Sender {
+        CompletableFuture<HttpTransport.Response> send(Entry entry);
+    }
+    
+    // One recorded mutation
+    public static class Entry {
+        private final long sequence;
+        private final String key;
+        private final String method;
+        private final String route;
+        private final String endpoint;
+        private final byte[] body;
+        
+        Entry(long sequence, String key, String method, String route, String endpoint, byte[] body) {
+            this.sequence = sequence;
+            this.key = key;
+            this.method = method;
+            this.route = route;
+            this.endpoint = endpoint;
+            this.body = body;
+        }
+        
+        public long getSequence() { return sequence; }
+        public String getKey() { return key; }
+        public String getMethod() { return method; }
+        public String getRoute() { return route; }
+        public String getEndpoint() { return endpoint; }
+        public byte[] getBody() { return body; }
+    }
+}
@@ -0,0 +1,201 @@
+package com.indusnetwork.api;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.managers.MetricsManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Coalescing outbound queue in front of WebAPIManager.
+ * Pending updates are kept per player and per field, so only the latest
+ * value of each field is sent. Updates are flushed as bulk requests on a
+ * fixed interval or as soon as the batch size is reached, one flush at a
+ * time, so a player never has two updates in flight. If the website does
+ * not offer the bulk endpoint, updates are sent per player instead; if a
+ * bulk request fails otherwise, its updates are queued again for the next
+ * flush.
+ */
+public class WebSyncQueue {
+    
+    // How long to wait before trying the bulk endpoint again after it was missing
+    private static final long BULK_RETRY_MILLIS = 10L * 60L * 1000L;
+    
+    private final IndusNetworkPlugin plugin;
+    private final WebAPIManager webAPIManager;
+    private final Map<UUID, PendingUpdate> pending;
+    private final AtomicBoolean flushing;
+    // The flush in progress while flushing is set
+    private volatile CompletableFuture<Void> currentFlush = CompletableFuture.completedFuture(null);
+    private final int batchSize;
+    private final boolean bulkEnabled;
+    private volatile long bulkUnavailableUntil;
+    
+    public WebSyncQueue(IndusNetworkPlugin plugin, WebAPIManager webAPIManager) {
+        this.plugin = plugin;
+        this.webAPIManager = webAPIManager;
+        this.pending = new ConcurrentHashMap<>();
+        this.flushing = new AtomicBoolean(false);
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("sync.batch_size", 100));
+        this.bulkEnabled = plugin.getConfig().getBoolean("sync.bulk_endpoint", true);
+    }
+    
+    /**
+     * Queue a player online status update
+     */
+    public void queueStatus(UUID playerId, boolean online) {
+        update(playerId, update -> update.online = online);
+        checkThreshold();
+    }
+    
+    /**
+     * Queue a player statistics update
+     */
+    public void queueStats(UUID playerId, WebAPIManager.PlayerStats stats) {
+        update(playerId, update -> update.stats = stats);
+        checkThreshold();
+    }
+    
+    /**
+     * Number of players with pending updates
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Send all pending updates. If a flush is still in progress, nothing is
+     * sent and its future is returned; updates queued meanwhile go out with
+     * the next flush. The returned future completes once every batch has
+     * been answered.
+     */
+    public CompletableFuture<Void> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return currentFlush;
+        }
+        CompletableFuture<Void> flush;
+        try {
+            flush = send(drain());
+        } catch (RuntimeException e) {
+            flushing.set(false);
+            throw e;
+        }
+        // Completes after the flag is cleared, so callers can chain the next flush on it
+        currentFlush = flush.whenComplete((ignored, throwable) -> flushing.set(false));
+        return currentFlush;
+    }
+    
+    private CompletableFuture<Void> send(List<WebAPIManager.PlayerUpdate> updates) {
+        if (updates.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        MetricsManager.Endpoint metrics = plugin.getMetricsManager().endpoint(MetricsManager.TASK, "sync.flush");
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int start = 0; start < updates.size(); start += batchSize) {
+            List<WebAPIManager.PlayerUpdate> batch = updates.subList(start, Math.min(updates.size(), start + batchSize));
+            batches.add(sendBatch(new ArrayList<>(batch)));
+        }
+        
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+            .whenComplete((ignored, throwable) -> metrics.record(startNanos, throwable != null, false, 0L, 0L));
+    }
+    
+    private void update(UUID playerId, Consumer<PendingUpdate> change) {
+        // Mutate inside compute() so a concurrent drain never sees a half-applied update
+        pending.compute(playerId, (id, update) -> {
+            PendingUpdate target = update != null ? update : new PendingUpdate();
+            change.accept(target);
+            return target;
+        });
+    }
+    
+    private void checkThreshold() {
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+    
+    private List<WebAPIManager.PlayerUpdate> drain() {
+        List<WebAPIManager.PlayerUpdate> updates = new ArrayList<>();
+        for (UUID playerId : pending.keySet()) {
+            PendingUpdate update = pending.remove(playerId);
+            if (update != null) {
+                updates.add(update.toPlayerUpdate(playerId));
+            }
+        }
+        return updates;
+    }
+    
+    private CompletableFuture<Void> sendBatch(List<WebAPIManager.PlayerUpdate> batch) {
+        if (!bulkEnabled || System.currentTimeMillis() < bulkUnavailableUntil) {
+            return sendIndividually(batch);
+        }
+        
+        return webAPIManager.syncPlayersBulk(batch)
+            .exceptionally(throwable -> WebAPIManager.BulkResult.FAILED)
+            .thenCompose(result -> {
+                switch (result) {
+                    case SUCCESS:
+                        return CompletableFuture.completedFuture(null);
+                    case UNSUPPORTED:
+                        bulkUnavailableUntil = System.currentTimeMillis() + BULK_RETRY_MILLIS;
+                        plugin.getLogger().info("Website has no bulk sync endpoint, falling back to per-player updates");
+                        return sendIndividually(batch);
+                    case REJECTED:
+                        plugin.getLogger().warning("Website rejected the bulk sync of " + batch.size() + " players, dropping it");
+                        return CompletableFuture.completedFuture(null);
+                    default:
+                        // Per-player requests would hit the same outage; send the batch again next flush
+                        plugin.getLogger().warning("Bulk sync of " + batch.size() + " players failed, retrying with the next flush");
+                        requeue(batch);
+                        return CompletableFuture.completedFuture(null);
+                }
+            });
+    }
+    
+    // Put drained updates back unless a newer value was queued for the same field
+    private void requeue(List<WebAPIManager.PlayerUpdate> batch) {
+        for (WebAPIManager.PlayerUpdate update : batch) {
+            update(update.getPlayerId(), target -> {
+                if (target.online == null) {
+                    target.online = update.getOnline();
+                }
+                if (target.stats == null) {
+                    target.stats = update.getStats();
+                }
+            });
+        }
+    }
+    
+    private CompletableFuture<Void> sendIndividually(List<WebAPIManager.PlayerUpdate> batch) {
+        List<CompletableFuture<?>> requests = new ArrayList<>();
+        for (WebAPIManager.PlayerUpdate update : batch) {
+            UUID playerId = update.getPlayerId();
+            if (update.getOnline() != null) {
+                requests.add(webAPIManager.updatePlayerStatus(playerId, update.getOnline()));
+            }
+            if (update.getStats() != null) {
+                requests.add(webAPIManager.syncPlayerStats(playerId, update.getStats()));
+            }
+        }
+        return CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]));
+    }
+    
+    // Latest queued value of each field for one player
+    private static class PendingUpdate {
+        private Boolean online;
+        private WebAPIManager.PlayerStats stats;
+        
+        WebAPIManager.PlayerUpdate toPlayerUpdate(UUID playerId) {
+            return new WebAPIManager.PlayerUpdate(playerId, online, stats);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.indusnetwork.api;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.managers.MetricsManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.entity.Player;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Embedded HTTP listener for pushes from the website.
+ * Each request must carry X-Indus-Timestamp (unix seconds) and
+ * X-Indus-Signature ("sha256=" + hex HMAC-SHA256 of "timestamp.body" keyed
+ * with website.webhook_secret). Requests outside the allowed clock skew or
+ * seen before are rejected, so captured pushes cannot be replayed.
+ * Accepted deliveries and rank changes are handed to the managers on the
+ * main thread. The listener binds to loopback unless public exposure is
+ * explicitly allowed with website.webhook.allow_public.
+ */
+public class WebhookServer {
+    
+    private static final String SIGNATURE_PREFIX = "sha256=";
+    
+    private final IndusNetworkPlugin plugin;
+    private final byte[] secret;
+    private final String bindAddress;
+    private final boolean allowPublic;
+    private final int port;
+    private final String path;
+    private final long maxAgeSeconds;
+    private final int maxBodyBytes;
+    // Accepted signatures and when they stop being valid, in order of receipt
+    private final LinkedHashMap<String, Long> seenSignatures;
+    
+    private HttpServer server;
+    
+    public WebhookServer(IndusNetworkPlugin plugin, String secret) {
+        this.plugin = plugin;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.bindAddress = plugin.getConfig().getString("website.webhook.bind_address", "127.0.0.1");
+        this.allowPublic = plugin.getConfig().getBoolean("website.webhook.allow_public", false);
+        this.port = plugin.getConfig().getInt("website.webhook.port", 8125);
+        this.path = plugin.getConfig().getString("website.webhook.path", "/indus/webhook");
+        this.maxAgeSeconds = Math.max(1, plugin.getConfig().getLong("website.webhook.max_age", 300));
+        this.maxBodyBytes = Math.max(1024, plugin.getConfig().getInt("website.webhook.max_body", 65536));
+        this.seenSignatures = new LinkedHashMap<>();
+    }
+    
+    /**
+     * Bind the listener and start accepting pushes
+     */
+    public void start() throws IOException {
+        InetAddress address = InetAddress.getByName(bindAddress);
+        if (!address.isLoopbackAddress() && !allowPublic) {
+            throw new IOException("bind_address " + bindAddress + " is not a loopback address;"
+                + " set website.webhook.allow_public to true to expose the receiver");
+        }
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(plugin.getExecutorManager().getWebExecutor());
+        server.start();
+        plugin.getLogger().info("Webhook receiver listening on " + bindAddress + ":" + port + path);
+    }
+    
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            server = null;
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        MetricsManager.Endpoint metrics = plugin.getMetricsManager().endpoint(MetricsManager.TASK, "webhook.receive");
+        long start = System.nanoTime();
+        int status;
+        long received = 0;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                status = 405;
+            } else {
+                byte[] body = readBody(exchange.getRequestBody());
+                received = body != null ? body.length : 0;
+                if (body == null) {
+                    status = 413;
+                } else if (!verify(exchange.getRequestHeaders().getFirst("X-Indus-Timestamp"),
+                        exchange.getRequestHeaders().getFirst("X-Indus-Signature"), body)) {
+                    plugin.getLogger().warning("Rejected webhook from " + exchange.getRemoteAddress() + ": invalid or expired signature");
+                    status = 401;
+                } else {
+                    status = accept(body);
+                }
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Failed to handle webhook: " + e.getMessage());
+            status = 500;
+        }
+        
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+        metrics.record(start, status >= 400, false, 0L, received);
+    }
+    
+    // Body up to maxBodyBytes, or null if it is larger
+    private byte[] readBody(InputStream input) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (body.size() + read > maxBodyBytes) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+    
+    private boolean verify(String timestamp, String signature, byte[] body) {
+        if (timestamp == null || signature == null || !signature.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+        
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(timestamp.trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        long now = System.currentTimeMillis() / 1000L;
+        if (Math.abs(now - sentAt) > maxAgeSeconds) {
+            return false;
+        }
+        
+        byte[] expected = sign(timestamp.trim(), body);
+        byte[] provided = decodeHex(signature.substring(SIGNATURE_PREFIX.length()).trim());
+        // Constant-time comparison so the signature cannot be guessed byte by byte
+        if (provided == null || !MessageDigest.isEqual(expected, provided)) {
+            return false;
+        }
+        return markSeen(Base64.getEncoder().encodeToString(expected), sentAt + maxAgeSeconds, now);
+    }
+    
+    private byte[] sign(String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            return mac.doFinal(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+    
+    // Remember accepted signatures until their timestamp is too old to pass
+    // verify again; false if this one was seen before
+    private synchronized boolean markSeen(String signature, long expiresAt, long now) {
+        // Timestamps may arrive out of order, so stop at the first live entry;
+        // a later expired one is dropped once the entries before it are
+        Iterator<Map.Entry<String, Long>> iterator = seenSignatures.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue() < now) {
+            iterator.remove();
+        }
+        return seenSignatures.putIfAbsent(signature, expiresAt) == null;
+    }
+    
+    private int accept(byte[] body) {
+        WebAPIManager.WebhookEvent event;
+        try {
+            event = WebJsonCodec.decodeWebhook(body);
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().warning("Rejected malformed webhook: " + e.getMessage());
+            return 400;
+        }
+        
+        switch (event.getType()) {
+            case "delivery":
+                if (event.getDelivery() == null) {
+                    return 400;
+                }
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    Player player = plugin.getServer().getPlayer(event.getPlayerId());
+                    if (player != null) {
+                        plugin.getDeliveryManager().processPushedDelivery(player, event.getDelivery());
+                    }
+                    // Offline players receive it from the pending list when they join
+                });
+                return 202;
+            
+            case "rank_update":
+                if (event.getRank() == null) {
+                    return 400;
+                }
+                plugin.getWebAPIManager().invalidateProfile(event.getPlayerId());
+                plugin.getServer().getScheduler().runTask(plugin, () -> {
+                    Player player = plugin.getServer().getPlayer(event.getPlayerId());
+                    if (player != null && plugin.getRankManager().rankExists(event.getRank())
+                            && !event.getRank().equalsIgnoreCase(plugin.getRankManager().getPlayerRank(player))) {
+                        plugin.getRankManager().applyWebsiteRank(player, event.getRank());
+                    }
+                });
+                return 202;
+            
+            default:
+                plugin.getLogger().fine("Ignoring webhook of unknown type " + event.getType());
+                return 202;
+        }
+    }
+    
+    private static byte[] decodeHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -1,6 +1,18 @@
 package com.indusnetwork.commands;
 
 import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.api.ProfileCache;
+import com.indusnetwork.api.SingleFlight;
+import com.indusnetwork.managers.CoinJournal;
+import com.indusnetwork.managers.CoinManager;
+import com.indusnetwork.managers.CoinTransaction;
+import com.indusnetwork.managers.ExecutorManager;
+import com.indusnetwork.managers.MetricsManager;
+import com.indusnetwork.managers.PlayerStateManager;
+import com.indusnetwork.managers.StatsHistory;
+import com.indusnetwork.managers.StatsManager;
+import com.indusnetwork.managers.StatsSampler;
+import com.indusnetwork.utils.LatencyHistogram;
 import com.indusnetwork.utils.MessageUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -8,6 +20,12 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
 public class AdminCommand implements CommandExecutor {
     
     private final IndusNetworkPlugin plugin;
@@ -39,6 +57,10 @@ public class AdminCommand implements CommandExecutor {
                 handleCoinsAdmin(sender, args);
                 break;
                 
+            case "bulkcoins":
+                handleBulkCoins(sender, args);
+                break;
+                
             case "rank":
                 handleRankAdmin(sender, args);
                 break;
@@ -47,6 +69,10 @@ public class AdminCommand implements CommandExecutor {
                 handleDeliveryAdmin(sender, args);
                 break;
                 
+            case "metrics":
+                handleMetrics(sender, args);
+                break;
+                
             default:
                 MessageUtils.sendPrefixedMessage(sender, "&cUnknown subcommand: " + subcommand);
                 showAdminHelp(sender);
@@ -60,8 +86,10 @@ public class AdminCommand implements CommandExecutor {
         MessageUtils.sendMessage(sender, "&c&l=== IndusNetwork Admin Commands ===");
         MessageUtils.sendMessage(sender, "&e/indusadmin reload &7- Reload plugin configuration");
         MessageUtils.sendMessage(sender, "&e/indusadmin coins <player> <add/remove/set> <amount> &7- Manage player coins");
+        MessageUtils.sendMessage(sender, "&e/indusadmin bulkcoins <online|rank:<rank>> <add/remove/set> <amount> &7- Manage coins of many players");
         MessageUtils.sendMessage(sender, "&e/indusadmin rank <player> <rank> &7- Set player rank");
         MessageUtils.sendMessage(sender, "&e/indusadmin delivery <player> &7- Check delivery status");
+        MessageUtils.sendMessage(sender, "&e/indusadmin metrics [reset] &7- Show latency and error metrics");
     }
     
     private void handleReload(CommandSender sender) {
@@ -97,17 +125,17 @@ public class AdminCommand implements CommandExecutor {
         
         switch (action) {
             case "add":
-                plugin.getCoinManager().addPlayerCoins(target.getUniqueId(), amount);
+                plugin.getCoinManager().addPlayerCoins(target.getUniqueId(), amount, CoinTransaction.REASON_ADMIN);
                 MessageUtils.sendPrefixedMessage(sender, "&aAdded " + amount + " coins to " + target.getName());
                 break;
                 
             case "remove":
-                plugin.getCoinManager().removePlayerCoins(target.getUniqueId(), amount);
+                plugin.getCoinManager().removePlayerCoins(target.getUniqueId(), amount, CoinTransaction.REASON_ADMIN);
                 MessageUtils.sendPrefixedMessage(sender, "&aRemoved " + amount + " coins from " + target.getName());
                 break;
                 
             case "set":
-                plugin.getCoinManager().setPlayerCoins(target.getUniqueId(), amount);
+                plugin.getCoinManager().setPlayerCoins(target.getUniqueId(), amount, CoinTransaction.REASON_ADMIN);
                 MessageUtils.sendPrefixedMessage(sender, "&aSet " + target.getName() + "'s coins to " + amount);
                 break;
                 
@@ -117,6 +145,73 @@ public class AdminCommand implements CommandExecutor {
         }
     }
     
+    private void handleBulkCoins(CommandSender sender, String[] args) {
+        if (args.length < 4) {
+            MessageUtils.sendMessage(sender, "&cUsage: /indusadmin bulkcoins <online|rank:<rank>> <add/remove/set> <amount>");
+            return;
+        }
+        
+        String target = args[1].toLowerCase();
+        String rank = null;
+        if (target.startsWith("rank:")) {
+            rank = target.substring("rank:".length());
+            if (!plugin.getRankManager().rankExists(rank)) {
+                MessageUtils.sendMessage(sender, "&cInvalid rank: " + rank);
+                return;
+            }
+        } else if (!target.equals("online")) {
+            MessageUtils.sendMessage(sender, "&cInvalid target: " + args[1] + ". Use online or rank:<rank>.");
+            return;
+        }
+        
+        CoinManager.BulkAction action;
+        try {
+            action = CoinManager.BulkAction.valueOf(args[2].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            MessageUtils.sendMessage(sender, "&cInvalid action: " + args[2] + ". Use add, remove, or set.");
+            return;
+        }
+        
+        int amount;
+        try {
+            amount = Integer.parseInt(args[3]);
+        } catch (NumberFormatException e) {
+            MessageUtils.sendMessage(sender, "&cInvalid amount: " + args[3]);
+            return;
+        }
+        if (amount < 0 || (amount == 0 && action != CoinManager.BulkAction.SET)) {
+            MessageUtils.sendMessage(sender, "&cInvalid amount: " + args[3]);
+            return;
+        }
+        
+        // Only the player list is built on this thread; the ledger work runs on a worker
+        List<UUID> players = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (rank == null || rank.equalsIgnoreCase(plugin.getRankManager().getPlayerRank(player))) {
+                players.add(player.getUniqueId());
+            }
+        }
+        if (players.isEmpty()) {
+            MessageUtils.sendPrefixedMessage(sender, "&cNo players match " + args[1]);
+            return;
+        }
+        
+        int total = players.size();
+        MessageUtils.sendPrefixedMessage(sender, "&6Applying " + action.name().toLowerCase() + " " + amount + " coins to " + total + " players...");
+        plugin.getCoinManager().applyBulk(players, action, amount, CoinTransaction.REASON_ADMIN, done -> {
+            if (done < total) {
+                MessageUtils.sendMessage(sender, "&7Processed " + done + "/" + total + " players");
+            }
+        }).whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                MessageUtils.sendPrefixedMessage(sender, "&cBulk coin change failed: " + throwable.getMessage());
+                return;
+            }
+            MessageUtils.sendPrefixedMessage(sender, "&aChanged the coins of " + result.getChanged() + " players"
+                + (result.getSkipped() > 0 ? " &7(" + result.getSkipped() + " unchanged or with too few coins)" : ""));
+        });
+    }
+    
     private void handleRankAdmin(CommandSender sender, String[] args) {
         if (args.length < 3) {
             MessageUtils.sendMessage(sender, "&cUsage: /indusadmin rank <player> <rank>");
@@ -161,4 +256,108 @@ public class AdminCommand implements CommandExecutor {
         plugin.getDeliveryManager().checkPlayerDeliveries(target);
         MessageUtils.sendPrefixedMessage(sender, "&aDelivery check initiated for " + target.getName());
     }
+    
+    private void handleMetrics(CommandSender sender, String[] args) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            MessageUtils.sendPrefixedMessage(sender, "&aMetrics have been reset");
+            return;
+        }
+        
+        long minutes = (System.currentTimeMillis() - metrics.getResetAt()) / 60000L;
+        MessageUtils.sendMessage(sender, "&c&l=== IndusNetwork Metrics &7(last " + minutes + "m) &c&l===");
+        showMetricsCategory(sender, "Website", metrics.getEndpoints(MetricsManager.WEB));
+        showMetricsCategory(sender, "Database", metrics.getEndpoints(MetricsManager.DATABASE));
+        showMetricsCategory(sender, "Tasks", metrics.getEndpoints(MetricsManager.TASK));
+        
+        SingleFlight singleFlight = plugin.getWebAPIManager().getSingleFlight();
+        ProfileCache profileCache = plugin.getWebAPIManager().getProfileCache();
+        MessageUtils.sendMessage(sender, "&6Website reads: &7sent " + singleFlight.getExecutedCount()
+            + ", collapsed " + singleFlight.getCollapsedCount()
+            + ", cache hits " + profileCache.getHits()
+            + ", revalidated " + profileCache.getRevalidations()
+            + ", outbox pending " + plugin.getWebAPIManager().getOutbox().getPendingCount()
+            + ", unflushed balances " + plugin.getCoinManager().getDirtyCount()
+            + ", refused coin transactions " + plugin.getCoinManager().getRejectedCount());
+        
+        PlayerStateManager playerState = plugin.getPlayerStateManager();
+        MessageUtils.sendMessage(sender, "&6Player state: &7online " + playerState.getOnlineCount()
+            + ", warm " + playerState.warmSize() + "/" + playerState.getWarmMaxEntries()
+            + ", balances " + plugin.getCoinManager().getLedger().size()
+            + ", evicted " + playerState.getEvictionCount()
+            + ", spilled " + playerState.getSpillCount()
+            + ", restored " + playerState.getRestoreCount());
+        
+        StatsManager stats = plugin.getStatsManager();
+        MessageUtils.sendMessage(sender, "&6Stats syncs: &7debounced " + stats.getDebouncedSyncCount()
+            + ", suppressed " + stats.getSuppressedSyncCount()
+            + ", waiting " + stats.getDirtyCount());
+        
+        StatsSampler sampler = plugin.getStatsSampler();
+        MessageUtils.sendMessage(sender, "&6Stats sampler: &7" + sampler.getQueuedCount() + " players"
+            + ", behind " + sampler.getLagMillis() + "ms"
+            + ", tick " + sampler.getLastTickMicros() + "us (avg " + sampler.getAverageTickMicros()
+            + "us, max " + sampler.getMaxTickMicros() + "us, budget " + sampler.getBudgetMicros() + "us)"
+            + ", samples " + sampler.getSampleCount());
+        
+        StatsHistory history = plugin.getStatsManager().getHistory();
+        MessageUtils.sendMessage(sender, "&6Stats history: &7" + (history.isEnabled()
+            ? history.getTrackedCount() + " players, stored days " + history.getStoredDayCount()
+            : "disabled"));
+        
+        CoinJournal journal = plugin.getCoinManager().getJournal();
+        MessageUtils.sendMessage(sender, "&6Coin journal: &7" + (journal.isEnabled()
+            ? "written " + journal.getWrittenCount()
+                + ", queued " + journal.getQueuedCount()
+                + ", snapshots " + journal.getSnapshotCount()
+                + ", recovered " + journal.getRecoveredCount()
+            : "disabled"));
+        
+        StringBuilder pools = new StringBuilder("&6Executors:");
+        for (ExecutorManager.Pool pool : ExecutorManager.Pool.values()) {
+            pools.append(" &e").append(pool.getId())
+                .append(" &7queued ").append(plugin.getExecutorManager().getQueueDepth(pool))
+                .append(", rejected ").append(plugin.getExecutorManager().getRejectedCount(pool));
+        }
+        MessageUtils.sendMessage(sender, pools.toString());
+    }
+    
+    private void showMetricsCategory(CommandSender sender, String title, Map<String, MetricsManager.Endpoint> endpoints) {
+        MessageUtils.sendMessage(sender, "&6" + title + ":");
+        if (endpoints.isEmpty()) {
+            MessageUtils.sendMessage(sender, "  &7No data yet");
+            return;
+        }
+        
+        for (MetricsManager.Endpoint endpoint : new TreeMap<>(endpoints).values()) {
+            LatencyHistogram latency = endpoint.getLatency();
+            MessageUtils.sendMessage(sender, "  &e" + endpoint.getName()
+                + " &7n=" + endpoint.getRequests()
+                + " err=" + endpoint.getErrors()
+                + " timeout=" + endpoint.getTimeouts()
+                + (endpoint.getRejected() > 0 ? " rejected=" + endpoint.getRejected() : "")
+                + " &fp50 " + formatMillis(latency.getPercentileMicros(50))
+                + " p95 " + formatMillis(latency.getPercentileMicros(95))
+                + " p99 " + formatMillis(latency.getPercentileMicros(99))
+                + " max " + formatMillis(latency.getMaxMicros())
+                + (endpoint.getBytesSent() + endpoint.getBytesReceived() > 0
+                    ? " &7out " + formatBytes(endpoint.getBytesSent()) + " in " + formatBytes(endpoint.getBytesReceived())
+                    : ""));
+        }
+    }
+    
+    private static String formatMillis(long micros) {
+        return String.format("%.1fms", micros / 1000.0);
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        if (bytes < 1024L * 1024L) {
+            return String.format("%.1fKB", bytes / 1024.0);
+        }
+        return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+    }
 }
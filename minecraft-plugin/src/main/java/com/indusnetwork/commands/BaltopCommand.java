@@ -0,0 +1,75 @@
+package com.indusnetwork.commands;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.managers.CoinLeaderboard;
+import com.indusnetwork.utils.MessageUtils;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+public class BaltopCommand implements CommandExecutor {
+    
+    private final IndusNetworkPlugin plugin;
+    
+    public BaltopCommand(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 1) {
+            MessageUtils.sendMessage(sender, "&cUsage: /baltop [page]");
+            return true;
+        }
+        
+        int page = 1;
+        if (args.length == 1) {
+            try {
+                page = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                MessageUtils.sendMessage(sender, "&cInvalid page number!");
+                return true;
+            }
+        }
+        
+        CoinLeaderboard leaderboard = plugin.getCoinManager().getLeaderboard();
+        int pageSize = Math.max(1, plugin.getConfig().getInt("settings.baltop_page_size", 10));
+        int pages = Math.max(1, (leaderboard.size() + pageSize - 1) / pageSize);
+        page = Math.max(1, Math.min(page, pages));
+        
+        MessageUtils.sendMessage(sender, plugin.getConfig().getString("messages.baltop_header", "{prefix}&6=== Top Balances &7(page {page}/{pages}) &6===")
+            .replace("{page}", String.valueOf(page))
+            .replace("{pages}", String.valueOf(pages)));
+        
+        int offset = (page - 1) * pageSize;
+        List<CoinLeaderboard.Entry> entries = leaderboard.getPage(offset, pageSize);
+        String format = plugin.getConfig().getString("messages.baltop_entry", "&e#{rank} &f{player} &7- &6{coins}");
+        for (int i = 0; i < entries.size(); i++) {
+            CoinLeaderboard.Entry entry = entries.get(i);
+            MessageUtils.sendMessage(sender, format
+                .replace("{rank}", String.valueOf(offset + i + 1))
+                .replace("{player}", getName(entry))
+                .replace("{coins}", String.valueOf(entry.getBalance())));
+        }
+        
+        if (sender instanceof Player) {
+            int rank = leaderboard.getRank(((Player) sender).getUniqueId());
+            if (rank > 0) {
+                MessageUtils.sendMessage(sender, plugin.getConfig().getString("messages.baltop_rank", "&6Your rank: &e#{rank}")
+                    .replace("{rank}", String.valueOf(rank)));
+            }
+        }
+        
+        return true;
+    }
+    
+    private String getName(CoinLeaderboard.Entry entry) {
+        OfflinePlayer player = plugin.getServer().getOfflinePlayer(entry.getPlayerId());
+        String name = player != null ? player.getName() : null;
+        return name != null ? name : entry.getPlayerId().toString().substring(0, 8);
+    }
+}
@@ -1,6 +1,7 @@
 package com.indusnetwork.commands;
 
 import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.managers.StatsHistory;
 import com.indusnetwork.managers.StatsManager;
 import com.indusnetwork.utils.MessageUtils;
 import org.bukkit.Bukkit;
@@ -19,6 +20,14 @@ public class StatsCommand implements CommandExecutor {
     
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // A trailing hour/day/week/month limits the stats to that window
+        int windowHours = args.length > 0 ? windowHours(args[args.length - 1]) : 0;
+        if (windowHours > 0) {
+            String[] rest = new String[args.length - 1];
+            System.arraycopy(args, 0, rest, 0, rest.length);
+            args = rest;
+        }
+        
         if (args.length == 0) {
             // Show own stats
             if (!(sender instanceof Player)) {
@@ -27,7 +36,7 @@ public class StatsCommand implements CommandExecutor {
             }
             
             Player player = (Player) sender;
-            showPlayerStats(player, player);
+            showPlayerStats(player, player, windowHours);
             
         } else if (args.length == 1) {
             // Show another player's stats
@@ -40,19 +49,39 @@ public class StatsCommand implements CommandExecutor {
             }
             
             if (sender instanceof Player) {
-                showPlayerStats((Player) sender, targetPlayer);
+                showPlayerStats((Player) sender, targetPlayer, windowHours);
             } else {
-                showPlayerStats(null, targetPlayer);
+                showPlayerStats(null, targetPlayer, windowHours);
             }
             
         } else {
-            MessageUtils.sendMessage(sender, "&cUsage: /stats [player]");
+            MessageUtils.sendMessage(sender, "&cUsage: /stats [player] [hour|day|week|month]");
         }
         
         return true;
     }
     
-    private void showPlayerStats(Player viewer, Player target) {
+    private int windowHours(String window) {
+        switch (window.toLowerCase()) {
+            case "hour":
+                return 1;
+            case "day":
+                return 24;
+            case "week":
+                return 7 * 24;
+            case "month":
+                return 30 * 24;
+            default:
+                return 0;
+        }
+    }
+    
+    private void showPlayerStats(Player viewer, Player target, int windowHours) {
+        if (windowHours > 0) {
+            showWindowStats(viewer, target, windowHours);
+            return;
+        }
+        
         StatsManager.PlayerStatsData stats = plugin.getStatsManager().getPlayerStats(target.getUniqueId());
         
         if (stats == null) {
@@ -82,4 +111,54 @@ public class StatsCommand implements CommandExecutor {
             plugin.getConfig().getString("messages.playtime", "&6Playtime: &e{playtime}")
                 .replace("{playtime}", stats.getFormattedPlaytime()));
     }
+    
+    private void showWindowStats(Player viewer, Player target, int windowHours) {
+        CommandSender recipient = viewer != null ? viewer : target;
+        String targetName = viewer != null && !viewer.equals(target) ? target.getName() + "'s" : "Your";
+        // Month windows read stored days, so the totals may arrive off the main thread
+        plugin.getStatsManager().getHistory().getTotals(target.getUniqueId(), windowHours).thenAccept(totals -> {
+            if (totals == null) {
+                MessageUtils.sendMessage(recipient, "&cStats not available for this player.");
+                return;
+            }
+            sendWindowStats(recipient, targetName, windowHours, totals);
+        });
+    }
+    
+    private void sendWindowStats(CommandSender recipient, String targetName, int windowHours, long[] totals) {
+        long kills = totals[StatsHistory.KILLS];
+        long deaths = totals[StatsHistory.DEATHS];
+        long playtime = totals[StatsHistory.PLAYTIME];
+        // The hour window is the current clock hour, the others whole hours back from it
+        String window = windowHours == 1 ? "this hour"
+            : windowHours == 24 ? "last 24 hours"
+            : windowHours == 7 * 24 ? "last 7 days"
+            : "last 30 days";
+        
+        MessageUtils.sendMessage(recipient,
+            plugin.getConfig().getString("messages.stats_window_header", "{prefix}&6=== Your Stats &7({window}) &6===")
+                .replace("Your", targetName)
+                .replace("{window}", window));
+        
+        MessageUtils.sendMessage(recipient,
+            plugin.getConfig().getString("messages.kills", "&6Kills: &e{kills}")
+                .replace("{kills}", String.valueOf(kills)));
+        
+        MessageUtils.sendMessage(recipient,
+            plugin.getConfig().getString("messages.deaths", "&6Deaths: &e{deaths}")
+                .replace("{deaths}", String.valueOf(deaths)));
+        
+        MessageUtils.sendMessage(recipient,
+            plugin.getConfig().getString("messages.kdr", "&6K/D Ratio: &e{kdr}")
+                .replace("{kdr}", String.format("%.2f", deaths > 0 ? (double) kills / deaths : kills)));
+        
+        MessageUtils.sendMessage(recipient,
+            plugin.getConfig().getString("messages.playtime", "&6Playtime: &e{playtime}")
+                .replace("{playtime}", (playtime / 60) + "h " + (playtime % 60) + "m"));
+        
+        MessageUtils.sendMessage(recipient,
+            plugin.getConfig().getString("messages.blocks", "&6Blocks: &e{broken} &7broken, &e{placed} &7placed")
+                .replace("{broken}", String.valueOf(totals[StatsHistory.BLOCKS_BROKEN]))
+                .replace("{placed}", String.valueOf(totals[StatsHistory.BLOCKS_PLACED])));
+    }
 }
@@ -50,10 +50,10 @@ public class VerifyCommand implements CommandExecutor {
                     plugin.getWebAPIManager().getPlayerData(player.getUniqueId()).thenAccept(newPlayerData -> {
                         if (newPlayerData != null) {
                             // Update rank if needed
-                            plugin.getRankManager().updatePlayerRank(player, newPlayerData.getRank());
+                            plugin.getRankManager().applyWebsiteRank(player, newPlayerData.getRank());
                             
                             // Update coins
-                            plugin.getCoinManager().setPlayerCoins(player.getUniqueId(), newPlayerData.getCoins());
+                            plugin.getCoinManager().applyWebsiteBalance(player.getUniqueId(), newPlayerData.getCoins());
                             
                             MessageUtils.sendMessage(player, "&aAccount data synchronized!");
                         }
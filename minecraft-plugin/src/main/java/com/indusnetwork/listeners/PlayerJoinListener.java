@@ -1,6 +1,7 @@
 package com.indusnetwork.listeners;
 
 import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.api.WebAPIManager;
 import com.indusnetwork.utils.MessageUtils;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -19,28 +20,39 @@ public class PlayerJoinListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
+        plugin.getPlayerStateManager().playerJoined(player.getUniqueId());
+        
+        // Read the statistics baseline here, on the main thread
+        plugin.getStatsManager().initializePlayer(player);
+        plugin.getStatsSampler().track(player.getUniqueId());
         
         // Load player data asynchronously
         plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
             // Update player online status on website
-            plugin.getWebAPIManager().updatePlayerStatus(player.getUniqueId(), true);
+            plugin.getWebSyncQueue().queueStatus(player.getUniqueId(), true);
             
-            // Load player coins
-            plugin.getCoinManager().loadPlayerCoins(player.getUniqueId());
+            // Load player coins, then hand out today's bonus on top of them
+            plugin.getCoinManager().loadPlayerCoins(player.getUniqueId()).thenRun(() -> {
+                if (plugin.getConfig().getBoolean("daily_bonus.on_join", true)) {
+                    // The bonus looks up the player's rank, so it is claimed on the main thread
+                    plugin.getServer().getScheduler().runTask(plugin, () -> plugin.getDailyBonusManager().claim(player.getUniqueId()));
+                }
+            });
             
             // Check if player is verified
-            plugin.getWebAPIManager().getPlayerData(player.getUniqueId()).thenAccept(playerData -> {
+            plugin.getWebAPIManager().lookupPlayer(player.getUniqueId()).thenAccept(lookup -> {
+                WebAPIManager.PlayerData playerData = lookup.getData();
                 if (playerData != null) {
                     // Player exists on website
                     if (playerData.isVerified()) {
                         // Update rank if needed
                         String currentRank = plugin.getRankManager().getPlayerRank(player);
                         if (!currentRank.equals(playerData.getRank())) {
-                            plugin.getRankManager().updatePlayerRank(player, playerData.getRank());
+                            plugin.getRankManager().applyWebsiteRank(player, playerData.getRank());
                         }
                         
                         // Sync coins
-                        plugin.getCoinManager().setPlayerCoins(player.getUniqueId(), playerData.getCoins());
+                        plugin.getCoinManager().applyWebsiteBalance(player.getUniqueId(), playerData.getCoins());
                         
                         // Welcome back message
                         plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
@@ -60,18 +72,14 @@ public class PlayerJoinListener implements Listener {
                             MessageUtils.sendPrefixedMessage(player, "&6Then use: &e/verify <code>");
                         }, 60L); // 3 seconds delay
                     }
-                } else {
+                } else if (lookup.getStatus() == WebAPIManager.PlayerLookup.Status.UNKNOWN) {
                     // New player
                     plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
                         MessageUtils.sendPrefixedMessage(player, "&aWelcome to IndusNetwork, " + player.getName() + "!");
                         MessageUtils.sendPrefixedMessage(player, "&6To get started, visit our website:");
                         MessageUtils.sendPrefixedMessage(player, "&b" + plugin.getConfig().getString("website.url", "https://indusnetwork.highms.pro"));
                         MessageUtils.sendPrefixedMessage(player, "&6Register your account and use &e/verify <code>&6 to link it!");
-                        
-                        // Give starting coins
-                        int startingCoins = plugin.getConfig().getInt("settings.starting_coins", 100);
-                        plugin.getCoinManager().setPlayerCoins(player.getUniqueId(), startingCoins);
-                        MessageUtils.sendPrefixedMessage(player, "&aYou have been given " + startingCoins + " starting coins!");
+                        // Starting coins are granted, and announced, when the coins are loaded
                     }, 80L); // 4 seconds delay
                 }
             }).exceptionally(throwable -> {
@@ -81,9 +89,6 @@ public class PlayerJoinListener implements Listener {
             
             // Check for pending deliveries
             plugin.getDeliveryManager().checkPlayerDeliveries(player);
-            
-            // Initialize stats tracking
-            plugin.getStatsManager().initializePlayer(player);
         });
         
         // Send welcome title
@@ -20,14 +20,16 @@ public class PlayerQuitListener implements Listener {
         Player player = event.getPlayer();
         
         // Update player offline status on website
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            plugin.getWebAPIManager().updatePlayerStatus(player.getUniqueId(), false);
-        });
+        plugin.getWebSyncQueue().queueStatus(player.getUniqueId(), false);
+        
+        // Send the final balance now instead of waiting for the next flush
+        plugin.getCoinManager().flushPlayerCoins(player.getUniqueId());
         
         // Sync final stats before player leaves
-        plugin.getStatsManager().syncPlayerStats(player);
+        plugin.getStatsManager().endSession(player.getUniqueId());
+        plugin.getStatsManager().syncPlayerStats(player.getUniqueId());
         
-        // Clean up player data from memory
-        plugin.getStatsManager().removePlayer(player.getUniqueId());
+        // Keep the player's state warm for a quick rejoin; it is evicted later
+        plugin.getPlayerStateManager().playerQuit(player.getUniqueId());
     }
 }
@@ -2,10 +2,14 @@ package com.indusnetwork.listeners;
 
 import com.indusnetwork.IndusNetworkPlugin;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.player.PlayerStatisticIncrementEvent;
 
+import java.util.UUID;
+
 public class PlayerStatsListener implements Listener {
     
     private final IndusNetworkPlugin plugin;
@@ -14,30 +18,31 @@ public class PlayerStatsListener implements Listener {
         this.plugin = plugin;
     }
     
-    @EventHandler
-    public void onPlayerDeath(PlayerDeathEvent event) {
-        // Update stats when player dies
-        plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-            plugin.getStatsManager().syncPlayerStats(event.getEntity());
-        }, 20L); // 1 second delay
-    }
-    
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onStatisticIncrement(PlayerStatisticIncrementEvent event) {
-        // Sync stats periodically for important statistics
+        UUID playerId = event.getPlayer().getUniqueId();
+        plugin.getStatsManager().recordIncrement(playerId, event.getStatistic(),
+            event.getNewValue() - event.getPreviousValue());
+        
         switch (event.getStatistic()) {
             case PLAYER_KILLS:
             case DEATHS:
-            case MINE_BLOCK:
-            case USE_ITEM:
-                // Sync important stats immediately
-                plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> {
-                    plugin.getStatsManager().syncPlayerStats(event.getPlayer());
-                }, 40L); // 2 second delay
+                // Sync important stats soon; bursts collapse into one debounced sync
+                plugin.getStatsManager().markDirty(playerId);
                 break;
             default:
                 // Other stats will be synced periodically
                 break;
         }
     }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        plugin.getStatsManager().recordBlockBroken(event.getPlayer().getUniqueId(), event.getBlock().getType());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        plugin.getStatsManager().recordBlockPlaced(event.getPlayer().getUniqueId(), event.getItemInHand().getType());
+    }
 }
@@ -0,0 +1,413 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only log of every coin change in the local database.
+ * Transactions are queued in memory and written in JDBC batches by a single
+ * writer, which numbers them in the order they were made. A balance the
+ * website reported is logged as an absolute entry. Every snapshot_interval
+ * the balance of each changed player is folded into a per-player snapshot,
+ * so loading a balance reads the snapshot and replays only the entries
+ * after it. Transactions are marked synced once the website accepted them;
+ * those it never did, e.g. after a crash or because it refused them, are
+ * queued for the website again on the next start.
+ */
+public class CoinJournal {
+    
+    private static final String REASON_WEBSITE_BALANCE = "website_balance";
+    
+    private final IndusNetworkPlugin plugin;
+    private final boolean enabled;
+    private final int batchSize;
+    private final String transactionsTable;
+    private final String snapshotsTable;
+    
+    private final ConcurrentLinkedQueue<Entry> queue;
+    private final ConcurrentLinkedQueue<String> synced;
+    // Players with entries newer than their snapshot
+    private final Set<UUID> changedSinceSnapshot;
+    // Held by the writer, so entries are numbered and written in queue order
+    private final Object writeLock = new Object();
+    private long nextSequence = 1;
+    private volatile boolean ready;
+    private volatile boolean unavailable;
+    
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    
+    public CoinJournal(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("coin_journal.enabled", true);
+        this.batchSize = Math.max(1, plugin.getConfig().getInt("coin_journal.batch_size", 500));
+        String prefix = plugin.getConfig().getString("database.table_prefix", "indus_");
+        this.transactionsTable = prefix + "coin_transactions";
+        this.snapshotsTable = prefix + "coin_snapshots";
+        this.queue = new ConcurrentLinkedQueue<>();
+        this.synced = new ConcurrentLinkedQueue<>();
+        this.changedSinceSnapshot = ConcurrentHashMap.newKeySet();
+    }
+    
+    /**
+     * Create the tables, continue the numbering of the existing log and
+     * return the transactions that were never handed to the website
+     */
+    public CompletableFuture<List<CoinTransaction>> open() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (writeLock) {
+                try {
+                    List<CoinTransaction> unsynced = plugin.getDatabaseManager().execute("coin_journal.open", connection -> {
+                        createTables(connection);
+                        try (Statement statement = connection.createStatement();
+                             ResultSet result = statement.executeQuery("SELECT MAX(seq) FROM " + transactionsTable)) {
+                            if (result.next()) {
+                                nextSequence = result.getLong(1) + 1;
+                            }
+                        }
+                        return loadUnsynced(connection);
+                    });
+                    ready = true;
+                    recovered.addAndGet(unsynced.size());
+                    return unsynced;
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Coin journal is disabled, the database is not available: " + e.getMessage());
+                    unavailable = true;
+                    queue.clear();
+                    synced.clear();
+                    return new ArrayList<CoinTransaction>();
+                }
+            }
+        }, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    /**
+     * Queue a transaction for the next batch
+     */
+    public void append(CoinTransaction transaction) {
+        if (isEnabled()) {
+            queue.add(new Entry(transaction, null));
+            changedSinceSnapshot.add(transaction.getPlayerId());
+        }
+    }
+    
+    /**
+     * Queue an absolute balance, e.g. one reported by the website; replays
+     * start over from it
+     */
+    public void appendBalance(UUID playerId, long balance) {
+        if (isEnabled()) {
+            CoinTransaction marker = CoinTransaction.create(playerId, 0L, REASON_WEBSITE_BALANCE);
+            queue.add(new Entry(marker, balance));
+            changedSinceSnapshot.add(playerId);
+        }
+    }
+    
+    /**
+     * Record that the website accepted these transactions
+     */
+    public void markSynced(List<CoinTransaction> transactions) {
+        if (isEnabled()) {
+            for (CoinTransaction transaction : transactions) {
+                synced.add(transaction.getId());
+            }
+        }
+    }
+    
+    /**
+     * Write queued entries and sync marks in batches
+     */
+    public CompletableFuture<Void> flush() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(this::write, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    /**
+     * Fold the entries of every changed player into their snapshot
+     */
+    public CompletableFuture<Void> snapshot() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        return CompletableFuture.runAsync(() -> {
+            write();
+            if (!ready) {
+                return;
+            }
+            
+            List<UUID> players = new ArrayList<>(changedSinceSnapshot);
+            changedSinceSnapshot.removeAll(players);
+            try {
+                plugin.getDatabaseManager().execute("coin_journal.snapshot", connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "REPLACE INTO " + snapshotsTable + " (uuid, balance, seq, updated_at) VALUES (?, ?, ?, ?)")) {
+                        for (UUID playerId : players) {
+                            long[] state = replay(connection, playerId);
+                            if (state == null) {
+                                continue;
+                            }
+                            statement.setString(1, playerId.toString());
+                            statement.setLong(2, state[0]);
+                            statement.setLong(3, state[1]);
+                            statement.setLong(4, System.currentTimeMillis());
+                            statement.addBatch();
+                        }
+                        return statement.executeBatch();
+                    }
+                });
+                snapshots.addAndGet(players.size());
+            } catch (Exception e) {
+                changedSinceSnapshot.addAll(players);
+                plugin.getLogger().warning("Failed to snapshot coin balances: " + e.getMessage());
+            }
+        }, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    /**
+     * Balance of the player from their snapshot and the entries after it,
+     * or -1 if the journal has nothing for them
+     */
+    public CompletableFuture<Long> loadBalance(UUID playerId) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            // Queued entries are part of the balance too
+            write();
+            if (!ready) {
+                return -1L;
+            }
+            try {
+                long[] state = plugin.getDatabaseManager().execute("coin_journal.replay", connection -> replay(connection, playerId));
+                return state != null ? state[0] : -1L;
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to replay coin journal for " + playerId + ": " + e.getMessage());
+                return -1L;
+            }
+        }, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    private void write() {
+        synchronized (writeLock) {
+            if (!ready || (queue.isEmpty() && synced.isEmpty())) {
+                return;
+            }
+            
+            List<Entry> entries = new ArrayList<>();
+            List<String> syncedIds = new ArrayList<>();
+            try {
+                plugin.getDatabaseManager().execute("coin_journal.write", connection -> {
+                    boolean autoCommit = connection.getAutoCommit();
+                    connection.setAutoCommit(false);
+                    try {
+                        insertEntries(connection, entries);
+                        updateSynced(connection, syncedIds);
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(autoCommit);
+                    }
+                    return null;
+                });
+                written.addAndGet(entries.size());
+            } catch (Exception e) {
+                // Keep the drained work for the next write, ahead of anything queued since
+                nextSequence -= entries.size();
+                requeue(queue, entries);
+                requeue(synced, syncedIds);
+                plugin.getLogger().warning("Failed to write coin journal: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void insertEntries(Connection connection, List<Entry> entries) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO " + transactionsTable
+                    + " (seq, tx_id, uuid, delta, balance, reason, created_at, synced) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int batched = 0;
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                entries.add(entry);
+                CoinTransaction transaction = entry.transaction;
+                statement.setLong(1, nextSequence++);
+                statement.setString(2, transaction.getId());
+                statement.setString(3, transaction.getPlayerId().toString());
+                statement.setLong(4, transaction.getDelta());
+                if (entry.balance != null) {
+                    statement.setLong(5, entry.balance);
+                } else {
+                    statement.setNull(5, Types.BIGINT);
+                }
+                statement.setString(6, transaction.getReason());
+                statement.setLong(7, transaction.getCreatedAt());
+                // Absolute entries are never sent to the website
+                statement.setInt(8, entry.balance != null ? 1 : 0);
+                statement.addBatch();
+                if (++batched == batchSize) {
+                    statement.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+    
+    private void updateSynced(Connection connection, List<String> syncedIds) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE " + transactionsTable + " SET synced = 1 WHERE tx_id = ?")) {
+            int batched = 0;
+            String id;
+            while ((id = synced.poll()) != null) {
+                syncedIds.add(id);
+                statement.setString(1, id);
+                statement.addBatch();
+                if (++batched == batchSize) {
+                    statement.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+    
+    // Balance and last sequence from the snapshot plus the entries after it, or null if none
+    private long[] replay(Connection connection, UUID playerId) throws SQLException {
+        long balance = 0L;
+        long sequence = 0L;
+        boolean found = false;
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT balance, seq FROM " + snapshotsTable + " WHERE uuid = ?")) {
+            statement.setString(1, playerId.toString());
+            try (ResultSet result = statement.executeQuery()) {
+                if (result.next()) {
+                    balance = result.getLong(1);
+                    sequence = result.getLong(2);
+                    found = true;
+                }
+            }
+        }
+        
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT seq, delta, balance FROM " + transactionsTable + " WHERE uuid = ? AND seq > ? ORDER BY seq")) {
+            statement.setString(1, playerId.toString());
+            statement.setLong(2, sequence);
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    sequence = result.getLong(1);
+                    long absolute = result.getLong(3);
+                    balance = result.wasNull() ? Math.max(0L, balance + result.getLong(2)) : absolute;
+                    found = true;
+                }
+            }
+        }
+        return found ? new long[] { balance, sequence } : null;
+    }
+    
+    private List<CoinTransaction> loadUnsynced(Connection connection) throws SQLException {
+        List<CoinTransaction> unsynced = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT tx_id, uuid, delta, reason, created_at FROM " + transactionsTable + " WHERE synced = 0 ORDER BY seq")) {
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    unsynced.add(new CoinTransaction(result.getString(1), UUID.fromString(result.getString(2)),
+                        result.getLong(3), result.getString(4), result.getLong(5)));
+                }
+            }
+        }
+        return unsynced;
+    }
+    
+    private void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // Inline unique keys double as the indexes for replays and recovery,
+            // and are the one index syntax MySQL and SQLite share
+            statement.execute("CREATE TABLE IF NOT EXISTS " + transactionsTable + " ("
+                + "seq BIGINT NOT NULL PRIMARY KEY, "
+                + "tx_id VARCHAR(36) NOT NULL, "
+                + "uuid VARCHAR(36) NOT NULL, "
+                + "delta BIGINT NOT NULL, "
+                + "balance BIGINT NULL, "
+                + "reason VARCHAR(64) NOT NULL, "
+                + "created_at BIGINT NOT NULL, "
+                + "synced SMALLINT NOT NULL DEFAULT 0, "
+                + "UNIQUE (tx_id), "
+                + "UNIQUE (uuid, seq), "
+                + "UNIQUE (synced, seq))");
+            statement.execute("CREATE TABLE IF NOT EXISTS " + snapshotsTable + " ("
+                + "uuid VARCHAR(36) NOT NULL PRIMARY KEY, "
+                + "balance BIGINT NOT NULL, "
+                + "seq BIGINT NOT NULL, "
+                + "updated_at BIGINT NOT NULL)");
+        }
+    }
+    
+    private static <T> void requeue(ConcurrentLinkedQueue<T> queue, List<T> drained) {
+        List<T> newer = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            newer.add(item);
+        }
+        queue.addAll(drained);
+        queue.addAll(newer);
+    }
+    
+    public boolean isEnabled() {
+        return enabled && !unavailable;
+    }
+    
+    public int getQueuedCount() {
+        return queue.size();
+    }
+    
+    public long getWrittenCount() {
+        return written.get();
+    }
+    
+    public long getSnapshotCount() {
+        return snapshots.get();
+    }
+    
+    public long getRecoveredCount() {
+        return recovered.get();
+    }
+    
+    private static final class Entry {
+        private final CoinTransaction transaction;
+        // Set for absolute entries
+        private final Long balance;
+        
+        Entry(CoinTransaction transaction, Long balance) {
+            this.transaction = transaction;
+            this.balance = balance;
+        }
+    }
+}
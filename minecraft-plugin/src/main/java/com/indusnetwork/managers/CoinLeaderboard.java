@@ -0,0 +1,240 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.utils.UUIDLongMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Coin balances ranked from richest to poorest, kept up to date as balances
+ * change instead of sorting the ledger per request.
+ * The ranking is a treap whose nodes know the size of their subtree, so the
+ * rank of a player and the entry at any position are found in O(log n) and a
+ * page of k entries in O(k log n). Equal balances are ordered by UUID so
+ * every player has a stable position.
+ */
+public class CoinLeaderboard {
+    
+    private final CoinLedger ledger;
+    // Balance each player is currently ranked with
+    private final UUIDLongMap ranked;
+    private final Random random;
+    private Node root;
+    
+    public CoinLeaderboard(CoinLedger ledger) {
+        this.ledger = ledger;
+        this.ranked = new UUIDLongMap();
+        this.random = new Random();
+    }
+    
+    /**
+     * Re-rank the player with their current ledger balance. The balance is
+     * read under the leaderboard lock, so the last refresh after concurrent
+     * changes always ranks the latest value.
+     */
+    public synchronized void refresh(UUID playerId) {
+        long balance = ledger.getBalance(playerId);
+        long previous = ranked.put(playerId, balance, -1L);
+        if (previous == balance) {
+            return;
+        }
+        
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        if (previous >= 0) {
+            root = remove(root, previous, most, least);
+        }
+        root = insert(root, new Node(balance, most, least, random.nextInt()));
+    }
+    
+    /**
+     * Stop ranking the player, e.g. because their balance left memory
+     */
+    public synchronized void remove(UUID playerId) {
+        long previous = ranked.get(playerId, -1L);
+        if (previous >= 0) {
+            ranked.remove(playerId);
+            root = remove(root, previous, playerId.getMostSignificantBits(), playerId.getLeastSignificantBits());
+        }
+    }
+    
+    /**
+     * Position of the player, 1 for the richest, or 0 if they are not ranked
+     */
+    public synchronized int getRank(UUID playerId) {
+        long balance = ranked.get(playerId, -1L);
+        if (balance < 0) {
+            return 0;
+        }
+        
+        long most = playerId.getMostSignificantBits();
+        long least = playerId.getLeastSignificantBits();
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(balance, most, least, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + size(node.left) + 1;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Up to limit entries starting at the given 0-based position
+     */
+    public synchronized List<Entry> getPage(int offset, int limit) {
+        int end = Math.min(size(root), offset + limit);
+        List<Entry> page = new ArrayList<>(Math.max(0, end - offset));
+        for (int position = Math.max(0, offset); position < end; position++) {
+            Node node = select(position);
+            page.add(new Entry(new UUID(node.most, node.least), node.balance));
+        }
+        return page;
+    }
+    
+    public synchronized int size() {
+        return size(root);
+    }
+    
+    private Node select(int position) {
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position > leftSize) {
+                position -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+    }
+    
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.balance, added.most, added.least, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+    
+    private static Node remove(Node node, long balance, long most, long least) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(balance, most, least, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, balance, most, least);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, balance, most, least);
+        } else {
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+    
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+    
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+    
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+    
+    // Richer first, then by UUID
+    private static int compare(long balance, long most, long least, Node node) {
+        if (balance != node.balance) {
+            return balance > node.balance ? -1 : 1;
+        }
+        if (most != node.most) {
+            return Long.compare(most, node.most);
+        }
+        return Long.compare(least, node.least);
+    }
+    
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+    
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+    
+    private static final class Node {
+        private final long balance;
+        private final long most;
+        private final long least;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+        
+        Node(long balance, long most, long least, int priority) {
+            this.balance = balance;
+            this.most = most;
+            this.least = least;
+            this.priority = priority;
+        }
+    }
+    
+    public static class Entry {
+        private final UUID playerId;
+        private final long balance;
+        
+        public Entry(UUID playerId, long balance) {
+            this.playerId = playerId;
+            this.balance = balance;
+        }
+        
+        public UUID getPlayerId() { return playerId; }
+        public long getBalance() { return balance; }
+    }
+}
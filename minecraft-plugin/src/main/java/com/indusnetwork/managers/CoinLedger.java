@@ -0,0 +1,602 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.utils.UUIDIntMap;
+import com.indusnetwork.utils.UUIDLongMap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent in-memory coin balances.
+ * Every balance is a cell of an AtomicLongArray, so reads take no lock and
+ * add and tryDebit are compare-and-set loops. Accounts are spread over
+ * segments; each finds the cell of an account through a primitive UUID to
+ * int table that is copied on write and published whole, so lookups take no
+ * lock either and no AtomicLong or UUID object is kept per account.
+ * Opening and dropping accounts, setting balances, transfers and transaction
+ * ids take the segment's lock, so changes to accounts in different segments
+ * never contend. A debit never takes a balance below zero. Transfers lock the
+ * segments of both accounts, always in segment order, so two transfers can
+ * neither interleave their debit and credit nor deadlock.
+ * Changes made through {@link CoinTransaction}s are applied at most once per
+ * transaction id, so a retried or replayed change cannot double-apply. The
+ * recently applied ids are kept per segment under the same lock, so
+ * duplicate checks do not serialize otherwise independent accounts.
+ * Changes that record transactions take a listener, which runs under the
+ * same lock right after the change, so bookkeeping such as queueing the
+ * transaction is atomic with it; {@link #withLock} runs other work that
+ * must not interleave with those changes.
+ */
+public class CoinLedger {
+    
+    private static final int DEFAULT_SEGMENTS = 64;
+    private static final int RECENT_TRANSACTIONS = 10000;
+    private static final int MIN_RECENT_PER_SEGMENT = 256;
+    private static final int MIN_CELLS = 16;
+    // Left in the cell of a dropped account, and in the old cells when a segment
+    // moves its balances, so a lock-free update that raced with it retries
+    // under the lock instead of being lost
+    private static final long RETIRED = Long.MIN_VALUE;
+    private static final Consumer<CoinTransaction> IGNORE = transaction -> { };
+    
+    private final Segment[] segments;
+    
+    public CoinLedger() {
+        this(DEFAULT_SEGMENTS);
+    }
+    
+    public CoinLedger(int segmentCount) {
+        // Round up to a power of two so the segment index is a mask
+        int size = Integer.highestOneBit(Math.max(1, segmentCount - 1)) << 1;
+        this.segments = new Segment[size];
+        int recentPerSegment = Math.max(MIN_RECENT_PER_SEGMENT, RECENT_TRANSACTIONS / size);
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment(recentPerSegment);
+        }
+    }
+    
+    /**
+     * Current balance, 0 for unknown accounts
+     */
+    public long getBalance(UUID playerId) {
+        Segment segment = segmentFor(playerId);
+        Table table = segment.table;
+        int cell = table.index.get(playerId, -1);
+        if (cell < 0) {
+            return 0L;
+        }
+        long balance = table.cells.get(cell);
+        if (balance != RETIRED) {
+            return balance;
+        }
+        return Math.max(0L, lockedBalance(segment, playerId));
+    }
+    
+    public boolean hasAccount(UUID playerId) {
+        return segmentFor(playerId).table.index.containsKey(playerId);
+    }
+    
+    /**
+     * Open an empty account. Returns false if the account already exists.
+     */
+    public boolean createAccount(UUID playerId) {
+        Segment segment = segmentFor(playerId);
+        segment.lock.lock();
+        try {
+            if (segment.table.index.containsKey(playerId)) {
+                return false;
+            }
+            segment.open(playerId);
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Drop the account from memory. Returns its balance, or -1 if there was none.
+     */
+    public long remove(UUID playerId) {
+        Segment segment = segmentFor(playerId);
+        segment.lock.lock();
+        try {
+            Table table = segment.table;
+            int cell = table.index.get(playerId, -1);
+            if (cell < 0) {
+                return -1L;
+            }
+            UUIDIntMap index = new UUIDIntMap(table.index);
+            index.remove(playerId);
+            segment.table = new Table(index, table.cells, table.used);
+            // Taken after publishing, so a lock-free update that still found the cell is kept
+            return table.cells.getAndSet(cell, RETIRED);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Replace the balance. Returns the previous balance.
+     */
+    public long set(UUID playerId, long amount) {
+        Segment segment = segmentFor(playerId);
+        segment.lock.lock();
+        try {
+            int cell = segment.open(playerId);
+            return segment.table.cells.getAndSet(cell, Math.max(0L, amount));
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Replace the balance and record the change as a transaction carrying the
+     * resulting delta. Returns null if the balance did not change.
+     */
+    public CoinTransaction set(UUID playerId, long amount, String reason) {
+        return set(playerId, amount, reason, IGNORE);
+    }
+    
+    /**
+     * Like {@link #set(UUID, long, String)}, passing the transaction to the
+     * listener while the lock is still held
+     */
+    public CoinTransaction set(UUID playerId, long amount, String reason, Consumer<CoinTransaction> onApplied) {
+        Segment segment = segmentFor(playerId);
+        segment.lock.lock();
+        try {
+            return lockedSet(segment, playerId, amount, reason, onApplied);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Apply the transaction's delta unless a transaction with the same id
+     * was applied before. Debits that the balance does not cover are refused.
+     */
+    public Result apply(CoinTransaction transaction) {
+        return apply(transaction, IGNORE);
+    }
+    
+    /**
+     * Like {@link #apply(CoinTransaction)}, passing the transaction to the
+     * listener while the lock is still held if it was applied
+     */
+    public Result apply(CoinTransaction transaction, Consumer<CoinTransaction> onApplied) {
+        Segment segment = segmentFor(transaction.getPlayerId());
+        segment.lock.lock();
+        try {
+            return lockedApply(segment, transaction, onApplied);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Apply many transactions, locking each segment once for all of its
+     * accounts instead of once per transaction. Returns the result of each
+     * transaction, in order. The listener gets every applied transaction
+     * while its segment is locked.
+     */
+    public Result[] applyAll(List<CoinTransaction> transactions, Consumer<CoinTransaction> onApplied) {
+        Result[] results = new Result[transactions.size()];
+        int[] order = orderBySegment(transactions.size(), i -> transactions.get(i).getPlayerId());
+        int i = 0;
+        while (i < order.length) {
+            Segment segment = segmentFor(transactions.get(order[i]).getPlayerId());
+            segment.lock.lock();
+            try {
+                do {
+                    results[order[i]] = lockedApply(segment, transactions.get(order[i]), onApplied);
+                    i++;
+                } while (i < order.length && segmentFor(transactions.get(order[i]).getPlayerId()) == segment);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Set many balances to the same amount, locking each segment once.
+     * Returns a transaction for every balance that changed, which the
+     * listener also gets while its segment is locked.
+     */
+    public List<CoinTransaction> setAll(List<UUID> playerIds, long amount, String reason, Consumer<CoinTransaction> onApplied) {
+        List<CoinTransaction> changes = new ArrayList<>();
+        int[] order = orderBySegment(playerIds.size(), playerIds::get);
+        int i = 0;
+        while (i < order.length) {
+            Segment segment = segmentFor(playerIds.get(order[i]));
+            segment.lock.lock();
+            try {
+                do {
+                    CoinTransaction transaction = lockedSet(segment, playerIds.get(order[i]), amount, reason, onApplied);
+                    if (transaction != null) {
+                        changes.add(transaction);
+                    }
+                    i++;
+                } while (i < order.length && segmentFor(playerIds.get(order[i])) == segment);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return changes;
+    }
+    
+    /**
+     * Remember a transaction applied before a restart, so it is not applied
+     * again if it is replayed
+     */
+    public void recordApplied(CoinTransaction transaction) {
+        Segment segment = segmentFor(transaction.getPlayerId());
+        segment.lock.lock();
+        try {
+            segment.markApplied(transaction.getId());
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Atomically add to the balance. Returns the new balance.
+     */
+    public long add(UUID playerId, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        Segment segment = segmentFor(playerId);
+        Table table = segment.table;
+        int cell = table.index.get(playerId, -1);
+        if (cell >= 0) {
+            long updated = addTo(table.cells, cell, amount);
+            if (updated != RETIRED) {
+                return updated;
+            }
+        }
+        // A new account, or the cell was retired meanwhile
+        segment.lock.lock();
+        try {
+            return lockedAdd(segment, playerId, amount);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Atomically subtract from the balance if it covers the amount.
+     * Returns the new balance, or -1 if the balance was insufficient.
+     */
+    public long tryDebit(UUID playerId, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount must not be negative: " + amount);
+        }
+        Segment segment = segmentFor(playerId);
+        Table table = segment.table;
+        int cell = table.index.get(playerId, -1);
+        if (cell < 0) {
+            return amount == 0 ? 0L : -1L;
+        }
+        long updated = debitFrom(table.cells, cell, amount);
+        if (updated != RETIRED) {
+            return updated;
+        }
+        segment.lock.lock();
+        try {
+            return lockedDebit(segment, playerId, amount);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    /**
+     * Move coins between two accounts. Either both sides change or neither does.
+     */
+    public boolean transfer(UUID fromPlayerId, UUID toPlayerId, long amount) {
+        if (amount <= 0 || fromPlayerId.equals(toPlayerId)) {
+            return false;
+        }
+        return transfer(CoinTransaction.create(fromPlayerId, -amount, CoinTransaction.REASON_TRANSFER),
+            CoinTransaction.create(toPlayerId, amount, CoinTransaction.REASON_TRANSFER), IGNORE) == Result.APPLIED;
+    }
+    
+    /**
+     * Apply a debit and its matching credit together, at most once per debit
+     * id. The listener gets the debit and then the credit while both
+     * segments are locked.
+     */
+    public Result transfer(CoinTransaction debit, CoinTransaction credit, Consumer<CoinTransaction> onApplied) {
+        UUID fromPlayerId = debit.getPlayerId();
+        UUID toPlayerId = credit.getPlayerId();
+        if (debit.getDelta() >= 0 || credit.getDelta() != -debit.getDelta() || fromPlayerId.equals(toPlayerId)) {
+            throw new IllegalArgumentException("Not a matching debit and credit: " + debit.getId() + ", " + credit.getId());
+        }
+        
+        int first = segmentIndex(fromPlayerId);
+        int second = segmentIndex(toPlayerId);
+        Segment fromSegment = segments[first];
+        Segment toSegment = segments[second];
+        ReentrantLock lower = segments[Math.min(first, second)].lock;
+        ReentrantLock higher = segments[Math.max(first, second)].lock;
+        lower.lock();
+        try {
+            if (higher != lower) {
+                higher.lock();
+            }
+            try {
+                if (fromSegment.applied.containsKey(debit.getId())) {
+                    return Result.DUPLICATE;
+                }
+                if (lockedDebit(fromSegment, fromPlayerId, credit.getDelta()) < 0) {
+                    return Result.INSUFFICIENT_FUNDS;
+                }
+                lockedAdd(toSegment, toPlayerId, credit.getDelta());
+                fromSegment.markApplied(debit.getId());
+                toSegment.markApplied(credit.getId());
+                onApplied.accept(debit);
+                onApplied.accept(credit);
+                return Result.APPLIED;
+            } finally {
+                if (higher != lower) {
+                    higher.unlock();
+                }
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+    
+    /**
+     * Run the action holding the lock of the account's segment, so no
+     * locked change to the account, nor its listener, runs meanwhile. The
+     * action may call back into the ledger for the same account.
+     */
+    public <T> T withLock(UUID playerId, Supplier<T> action) {
+        Segment segment = segmentFor(playerId);
+        segment.lock.lock();
+        try {
+            return action.get();
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    public void withLock(UUID playerId, Runnable action) {
+        withLock(playerId, () -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Visit every balance without copying or locking. Changes made while
+     * the visit runs may or may not be seen.
+     */
+    public void forEach(UUIDLongMap.Consumer consumer) {
+        for (Segment segment : segments) {
+            Table table = segment.table;
+            table.index.forEach((playerId, cell) -> {
+                long balance = table.cells.get(cell);
+                if (balance == RETIRED) {
+                    // Moved or dropped since the table was read
+                    balance = lockedBalance(segment, playerId);
+                }
+                if (balance >= 0) {
+                    consumer.accept(playerId, balance);
+                }
+            });
+        }
+    }
+    
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.table.index.size();
+        }
+        return size;
+    }
+    
+    // Balance read under the lock, which waits out a segment moving its cells; -1 if there is no account
+    private long lockedBalance(Segment segment, UUID playerId) {
+        segment.lock.lock();
+        try {
+            Table table = segment.table;
+            int cell = table.index.get(playerId, -1);
+            return cell >= 0 ? table.cells.get(cell) : -1L;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+    
+    // The lock-held variants below see only live cells, so they never meet RETIRED
+    
+    private Result lockedApply(Segment segment, CoinTransaction transaction, Consumer<CoinTransaction> onApplied) {
+        if (segment.applied.containsKey(transaction.getId())) {
+            return Result.DUPLICATE;
+        }
+        long delta = transaction.getDelta();
+        if (delta >= 0) {
+            lockedAdd(segment, transaction.getPlayerId(), delta);
+        } else if (lockedDebit(segment, transaction.getPlayerId(), -delta) < 0) {
+            return Result.INSUFFICIENT_FUNDS;
+        }
+        segment.markApplied(transaction.getId());
+        onApplied.accept(transaction);
+        return Result.APPLIED;
+    }
+    
+    private CoinTransaction lockedSet(Segment segment, UUID playerId, long amount, String reason, Consumer<CoinTransaction> onApplied) {
+        long balance = Math.max(0L, amount);
+        int cell = segment.open(playerId);
+        long previous = segment.table.cells.getAndSet(cell, balance);
+        if (previous == balance) {
+            return null;
+        }
+        CoinTransaction transaction = CoinTransaction.create(playerId, balance - previous, reason);
+        segment.markApplied(transaction.getId());
+        onApplied.accept(transaction);
+        return transaction;
+    }
+    
+    private long lockedAdd(Segment segment, UUID playerId, long amount) {
+        int cell = segment.open(playerId);
+        return addTo(segment.table.cells, cell, amount);
+    }
+    
+    private long lockedDebit(Segment segment, UUID playerId, long amount) {
+        int cell = segment.table.index.get(playerId, -1);
+        if (cell < 0) {
+            return amount == 0 ? 0L : -1L;
+        }
+        return debitFrom(segment.table.cells, cell, amount);
+    }
+    
+    // Returns the new balance, or RETIRED without a change
+    private static long addTo(AtomicLongArray cells, int cell, long amount) {
+        while (true) {
+            long current = cells.get(cell);
+            if (current == RETIRED) {
+                return RETIRED;
+            }
+            long updated = saturatedAdd(current, amount);
+            if (cells.compareAndSet(cell, current, updated)) {
+                return updated;
+            }
+        }
+    }
+    
+    // Returns the new balance, -1 if it does not cover the amount, or RETIRED without a change
+    private static long debitFrom(AtomicLongArray cells, int cell, long amount) {
+        while (true) {
+            long current = cells.get(cell);
+            if (current == RETIRED) {
+                return RETIRED;
+            }
+            if (current < amount) {
+                return -1L;
+            }
+            if (cells.compareAndSet(cell, current, current - amount)) {
+                return current - amount;
+            }
+        }
+    }
+    
+    // Indices 0..count-1 grouped by the segment of their account, by counting sort
+    private int[] orderBySegment(int count, IntFunction<UUID> playerAt) {
+        int[] segmentOf = new int[count];
+        int[] starts = new int[segments.length + 1];
+        for (int i = 0; i < count; i++) {
+            segmentOf[i] = segmentIndex(playerAt.apply(i));
+            starts[segmentOf[i] + 1]++;
+        }
+        for (int s = 0; s < segments.length; s++) {
+            starts[s + 1] += starts[s];
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[starts[segmentOf[i]]++] = i;
+        }
+        return order;
+    }
+    
+    private Segment segmentFor(UUID playerId) {
+        return segments[segmentIndex(playerId)];
+    }
+    
+    private int segmentIndex(UUID playerId) {
+        int hash = playerId.hashCode();
+        // Spread the high bits so neighbouring UUIDs do not share a segment
+        return (hash ^ (hash >>> 16)) & (segments.length - 1);
+    }
+    
+    private static long saturatedAdd(long current, long amount) {
+        long result = current + amount;
+        return result < current ? Long.MAX_VALUE : result;
+    }
+    
+    public enum Result {
+        APPLIED,
+        DUPLICATE,
+        INSUFFICIENT_FUNDS
+    }
+    
+    // The cells of one segment and the table that finds them. Never changed
+    // once published, apart from the cell values; a new account or a dropped
+    // one publishes a new table.
+    private static final class Table {
+        private final UUIDIntMap index;
+        private final AtomicLongArray cells;
+        // Cells handed out so far; cells are not reused until the segment moves them
+        private final int used;
+        
+        Table(UUIDIntMap index, AtomicLongArray cells, int used) {
+            this.index = index;
+            this.cells = cells;
+            this.used = used;
+        }
+    }
+    
+    // Balances of the accounts that hash to one lock, and the ids of the
+    // transactions recently applied to them, oldest first
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Table table = new Table(new UUIDIntMap(), new AtomicLongArray(MIN_CELLS), 0);
+        private final LinkedHashMap<String, Boolean> applied;
+        
+        Segment(int recentTransactions) {
+            this.applied = new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > recentTransactions;
+                }
+            };
+        }
+        
+        // Caller holds the lock
+        void markApplied(String transactionId) {
+            applied.put(transactionId, Boolean.TRUE);
+        }
+        
+        // Cell of the account, opening it with a zero balance if it is new. Caller holds the lock.
+        int open(UUID playerId) {
+            Table current = table;
+            int cell = current.index.get(playerId, -1);
+            if (cell >= 0) {
+                return cell;
+            }
+            if (current.used == current.cells.length()) {
+                current = compact(current);
+            }
+            UUIDIntMap index = new UUIDIntMap(current.index);
+            index.put(playerId, current.used);
+            table = new Table(index, current.cells, current.used + 1);
+            return current.used;
+        }
+        
+        // Move the live balances to a new array with room to grow, dropping the
+        // cells of removed accounts. Each old cell is retired as it is copied, so
+        // a lock-free update racing with the move fails and retries under the lock.
+        private Table compact(Table current) {
+            int live = current.index.size();
+            AtomicLongArray cells = new AtomicLongArray(Math.max(MIN_CELLS, 2 * (live + 1)));
+            UUIDIntMap index = new UUIDIntMap(live + 1);
+            int[] next = new int[1];
+            current.index.forEach((playerId, cell) -> {
+                cells.set(next[0], current.cells.getAndSet(cell, RETIRED));
+                index.put(playerId, next[0]++);
+            });
+            Table moved = new Table(index, cells, next[0]);
+            table = moved;
+            return moved;
+        }
+    }
+}
@@ -1,55 +1,293 @@
 package com.indusnetwork.managers;
 
 import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.api.WebAPIManager;
+import com.indusnetwork.api.WebOutbox;
 import com.indusnetwork.utils.MessageUtils;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 
+/**
+ * Player coin balances, kept in the {@link CoinLedger} and sent to the
+ * website as transactions. The ledger queues each transaction from its
+ * listener, under the lock of the change itself, and a website balance is
+ * taken over under the same lock, so it can never drop a local change.
+ */
 public class CoinManager {
     
+    // How long to wait before loading a balance again after the website did not answer
+    private static final long LOAD_RETRY_TICKS = 60L * 20L;
+    
     private final IndusNetworkPlugin plugin;
-    private final Map<UUID, Integer> playerCoins;
+    private final CoinLedger ledger;
+    private final CoinLeaderboard leaderboard;
+    private final CoinJournal journal;
+    // Transactions not yet handed to the website, per player in order
+    private final ConcurrentMap<UUID, List<CoinTransaction>> pendingTransactions;
+    // Transactions handed to the website but not accepted by it yet
+    private final ConcurrentMap<UUID, List<CoinTransaction>> inFlightTransactions;
+    // Players whose balance was loaded from the website or the local copies
+    private final Set<UUID> loadedBalances;
+    private final AtomicLong rejectedTransactions = new AtomicLong();
     
     public CoinManager(IndusNetworkPlugin plugin) {
         this.plugin = plugin;
-        this.playerCoins = new HashMap<>();
+        this.ledger = new CoinLedger();
+        this.leaderboard = new CoinLeaderboard(ledger);
+        this.journal = new CoinJournal(plugin);
+        this.pendingTransactions = new ConcurrentHashMap<>();
+        this.inFlightTransactions = new ConcurrentHashMap<>();
+        this.loadedBalances = ConcurrentHashMap.newKeySet();
     }
     
     /**
      * Get player's coin balance
      */
     public int getPlayerCoins(UUID playerId) {
-        return playerCoins.getOrDefault(playerId, 0);
+        return toCoins(ledger.getBalance(playerId));
     }
     
     /**
      * Set player's coin balance
      */
     public void setPlayerCoins(UUID playerId, int coins) {
-        playerCoins.put(playerId, Math.max(0, coins));
+        setPlayerCoins(playerId, coins, CoinTransaction.REASON_PLUGIN);
+    }
+    
+    /**
+     * Set player's coin balance, recording the difference as a transaction
+     */
+    public void setPlayerCoins(UUID playerId, int coins, String reason) {
+        CoinTransaction transaction = ledger.set(playerId, Math.max(0, coins), reason, this::queue);
+        if (transaction != null) {
+            changed(playerId);
+        }
+    }
+    
+    /**
+     * Apply a transaction, e.g. one created by another plugin or received
+     * again after a retry. A transaction id is only ever applied once.
+     */
+    public CoinLedger.Result applyTransaction(CoinTransaction transaction) {
+        CoinLedger.Result result = ledger.apply(transaction, this::queue);
+        if (result == CoinLedger.Result.APPLIED) {
+            changed(transaction.getPlayerId());
+        }
+        return result;
+    }
+    
+    /**
+     * Take over the balance the website reported, keeping local changes it
+     * has not accepted yet on top of it: those not sent yet and those
+     * waiting in the outbox. This is not a change of its own and is not
+     * sent back.
+     */
+    public void applyWebsiteBalance(UUID playerId, int coins) {
+        ledger.withLock(playerId, () -> {
+            long balance = coins + sum(pendingTransactions.get(playerId)) + sum(inFlightTransactions.get(playerId));
+            ledger.set(playerId, balance);
+            journal.appendBalance(playerId, balance);
+        });
+        loadedBalances.add(playerId);
+        leaderboard.refresh(playerId);
+        // A balance spilled before is older than this one now
+        plugin.getPlayerStateManager().discardSpill(playerId);
+    }
+    
+    private static long sum(List<CoinTransaction> transactions) {
+        long total = 0;
+        if (transactions != null) {
+            for (CoinTransaction transaction : transactions) {
+                total += transaction.getDelta();
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Queue the transaction for the next write-behind flush. All
+     * transactions of a player between two flushes are sent to the website
+     * as a single batch. The ledger calls this with the player's segment
+     * locked, right after the change.
+     */
+    private void queue(CoinTransaction transaction) {
+        pendingTransactions.computeIfAbsent(transaction.getPlayerId(), id -> new ArrayList<>()).add(transaction);
+        // Logged in the same order as queued for the website
+        journal.append(transaction);
+    }
+    
+    // Re-rank the player after a change to their balance
+    private void changed(UUID playerId) {
+        leaderboard.refresh(playerId);
+        plugin.getPlayerStateManager().touch(playerId);
+    }
+    
+    /**
+     * Open the coin journal and queue the transactions a previous run logged
+     * but never handed to the website
+     */
+    public CompletableFuture<Void> openJournal() {
+        return journal.open().thenAccept(unsynced -> {
+            for (CoinTransaction transaction : unsynced) {
+                ledger.withLock(transaction.getPlayerId(), () -> {
+                    ledger.recordApplied(transaction);
+                    pendingTransactions.computeIfAbsent(transaction.getPlayerId(), id -> new ArrayList<>()).add(transaction);
+                });
+            }
+            if (!unsynced.isEmpty()) {
+                plugin.getLogger().info("Recovered " + unsynced.size() + " coin transactions not yet sent to the website");
+            }
+        });
+    }
+    
+    public boolean hasPendingTransactions(UUID playerId) {
+        return pendingTransactions.containsKey(playerId);
+    }
+    
+    /**
+     * Drop the player's balance from memory and the leaderboard.
+     * Returns the balance, or -1 if none was loaded.
+     */
+    public long evictPlayer(UUID playerId) {
+        loadedBalances.remove(playerId);
+        long balance = ledger.remove(playerId);
+        leaderboard.remove(playerId);
+        return balance;
+    }
+    
+    /**
+     * Send the pending transactions of every changed player to the website
+     */
+    public CompletableFuture<Void> flushCoins() {
+        List<CompletableFuture<Void>> flushes = new ArrayList<>();
+        for (UUID playerId : pendingTransactions.keySet()) {
+            flushes.add(flushPlayerCoins(playerId));
+        }
+        return CompletableFuture.allOf(flushes.toArray(new CompletableFuture[0]));
+    }
+    
+    /**
+     * Hand the player's pending transactions, if any, to the outbox as one
+     * batch. They are marked synced in the journal once the website accepted
+     * them; until then the outbox replays them.
+     */
+    public CompletableFuture<Void> flushPlayerCoins(UUID playerId) {
+        List<CoinTransaction> batch = ledger.withLock(playerId, () -> {
+            List<CoinTransaction> taken = pendingTransactions.remove(playerId);
+            if (taken != null) {
+                // Still counted on top of website balances until the website accepted it
+                addInFlight(taken);
+            }
+            return taken;
+        });
+        if (batch == null) {
+            return CompletableFuture.completedFuture(null);
+        }
         
-        // Sync with website
-        plugin.getWebAPIManager().updatePlayerCoins(playerId, coins).exceptionally(throwable -> {
+        CompletableFuture<Boolean> update;
+        try {
+            update = plugin.getWebAPIManager().submitCoinTransactions(playerId, batch);
+        } catch (RuntimeException e) {
+            update = CompletableFuture.failedFuture(e);
+        }
+        update.whenComplete((delivered, throwable) -> {
+            if (throwable == null) {
+                if (delivered) {
+                    journal.markSynced(batch);
+                    removeInFlight(batch);
+                }
+                // Otherwise the outbox closed first and replays the batch on the next start
+                return;
+            }
+            if (reportRejected(batch, throwable)) {
+                return;
+            }
+            // Never reached the outbox; put the batch back ahead of newer transactions
+            ledger.withLock(playerId, () -> {
+                removeInFlight(batch);
+                List<CoinTransaction> pending = pendingTransactions.get(playerId);
+                List<CoinTransaction> transactions = new ArrayList<>(batch);
+                if (pending != null) {
+                    transactions.addAll(pending);
+                }
+                pendingTransactions.put(playerId, transactions);
+            });
             plugin.getLogger().warning("Failed to sync coins with website: " + throwable.getMessage());
-            return false;
         });
+        // Submitting writes the batch to the outbox log, so it is handed over by now
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    // Log transactions the website refused. They stay unsynced in the journal
+    // and are sent again on the next start, when the website may accept them;
+    // until then they stay counted on top of website balances.
+    private boolean reportRejected(List<CoinTransaction> transactions, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (!(cause instanceof WebOutbox.RejectedException)) {
+            return false;
+        }
+        rejectedTransactions.addAndGet(transactions.size());
+        plugin.getLogger().severe("Website refused " + transactions.size() + " coin transaction(s) with code "
+            + ((WebOutbox.RejectedException) cause).getStatusCode() + "; website balances are out of sync until they are accepted."
+            + " They are kept in the coin journal and sent again on the next start.");
+        return true;
+    }
+    
+    // Callers hold the ledger locks of the transactions' players
+    private void addInFlight(List<CoinTransaction> transactions) {
+        for (CoinTransaction transaction : transactions) {
+            addInFlight(transaction);
+        }
+    }
+    
+    private void addInFlight(CoinTransaction transaction) {
+        inFlightTransactions.computeIfAbsent(transaction.getPlayerId(), id -> new ArrayList<>()).add(transaction);
+    }
+    
+    // Forget transactions the website accepted, taking each player's ledger lock
+    private void removeInFlight(List<CoinTransaction> transactions) {
+        for (CoinTransaction transaction : transactions) {
+            ledger.withLock(transaction.getPlayerId(), () -> {
+                List<CoinTransaction> inFlight = inFlightTransactions.get(transaction.getPlayerId());
+                if (inFlight != null && inFlight.remove(transaction) && inFlight.isEmpty()) {
+                    inFlightTransactions.remove(transaction.getPlayerId());
+                }
+            });
+        }
+    }
+    
+    /**
+     * Number of players with coin transactions not yet handed to the website
+     */
+    public int getDirtyCount() {
+        return pendingTransactions.size();
     }
     
     /**
      * Add coins to player's balance
      */
     public CompletableFuture<Boolean> addPlayerCoins(UUID playerId, int amount) {
+        return addPlayerCoins(playerId, amount, CoinTransaction.REASON_PLUGIN);
+    }
+    
+    /**
+     * Add coins to player's balance, recording why
+     */
+    public CompletableFuture<Boolean> addPlayerCoins(UUID playerId, int amount, String reason) {
         return CompletableFuture.supplyAsync(() -> {
             if (amount <= 0) return false;
             
-            int currentCoins = getPlayerCoins(playerId);
-            int newCoins = currentCoins + amount;
-            
-            setPlayerCoins(playerId, newCoins);
+            applyTransaction(CoinTransaction.create(playerId, amount, reason));
             
             // Notify player if online
             Player player = plugin.getServer().getPlayer(playerId);
@@ -60,24 +298,27 @@ public class CoinManager {
             }
             
             return true;
-        });
+        }, plugin.getExecutorManager().getCpuExecutor());
     }
     
     /**
      * Remove coins from player's balance
      */
     public CompletableFuture<Boolean> removePlayerCoins(UUID playerId, int amount) {
+        return removePlayerCoins(playerId, amount, CoinTransaction.REASON_PLUGIN);
+    }
+    
+    /**
+     * Remove coins from player's balance, recording why
+     */
+    public CompletableFuture<Boolean> removePlayerCoins(UUID playerId, int amount, String reason) {
         return CompletableFuture.supplyAsync(() -> {
             if (amount <= 0) return false;
             
-            int currentCoins = getPlayerCoins(playerId);
-            if (currentCoins < amount) {
+            if (applyTransaction(CoinTransaction.create(playerId, -amount, reason)) != CoinLedger.Result.APPLIED) {
                 return false; // Insufficient coins
             }
             
-            int newCoins = currentCoins - amount;
-            setPlayerCoins(playerId, newCoins);
-            
             // Notify player if online
             Player player = plugin.getServer().getPlayer(playerId);
             if (player != null) {
@@ -87,9 +328,105 @@ public class CoinManager {
             }
             
             return true;
+        }, plugin.getExecutorManager().getCpuExecutor());
+    }
+    
+    /**
+     * Apply the same change to many players, in chunks on a worker thread.
+     * Each chunk is applied with one pass over the ledger, and all changes
+     * reach the website as a single bulk request at the end. Progress gets
+     * the number of players processed after every chunk.
+     */
+    public CompletableFuture<BulkResult> applyBulk(List<UUID> playerIds, BulkAction action, int amount, String reason, IntConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            int chunkSize = Math.max(1, plugin.getConfig().getInt("settings.bulk_chunk_size", 250));
+            List<CoinTransaction> changes = new ArrayList<>();
+            for (int start = 0; start < playerIds.size(); start += chunkSize) {
+                int end = Math.min(playerIds.size(), start + chunkSize);
+                List<UUID> chunk = playerIds.subList(start, end);
+                
+                List<CoinTransaction> applied;
+                if (action == BulkAction.SET) {
+                    applied = ledger.setAll(chunk, Math.max(0, amount), reason, this::queueBulk);
+                } else {
+                    long delta = action == BulkAction.ADD ? amount : -(long) amount;
+                    List<CoinTransaction> transactions = new ArrayList<>(chunk.size());
+                    for (UUID playerId : chunk) {
+                        transactions.add(CoinTransaction.create(playerId, delta, reason));
+                    }
+                    CoinLedger.Result[] results = ledger.applyAll(transactions, this::queueBulk);
+                    applied = new ArrayList<>(transactions.size());
+                    for (int i = 0; i < results.length; i++) {
+                        if (results[i] == CoinLedger.Result.APPLIED) {
+                            applied.add(transactions.get(i));
+                        }
+                    }
+                }
+                
+                for (CoinTransaction transaction : applied) {
+                    leaderboard.refresh(transaction.getPlayerId());
+                    notifyPlayer(transaction);
+                }
+                changes.addAll(applied);
+                progress.accept(end);
+            }
+            
+            submitBulk(changes);
+            return new BulkResult(changes.size(), playerIds.size() - changes.size());
+        }, plugin.getExecutorManager().getCpuExecutor());
+    }
+    
+    // Like queue, for a change sent with the bulk request at the end; it is
+    // counted on top of website balances until then
+    private void queueBulk(CoinTransaction transaction) {
+        journal.append(transaction);
+        addInFlight(transaction);
+    }
+    
+    private void submitBulk(List<CoinTransaction> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        
+        CompletableFuture<Boolean> update;
+        try {
+            update = plugin.getWebAPIManager().submitBulkCoinTransactions(changes);
+        } catch (RuntimeException e) {
+            update = CompletableFuture.failedFuture(e);
+        }
+        update.whenComplete((delivered, throwable) -> {
+            if (throwable == null) {
+                if (delivered) {
+                    journal.markSynced(changes);
+                    removeInFlight(changes);
+                }
+                return;
+            }
+            if (reportRejected(changes, throwable)) {
+                return;
+            }
+            // Never reached the outbox; send them with the per-player write-behind flush instead
+            removeInFlight(changes);
+            for (CoinTransaction transaction : changes) {
+                ledger.withLock(transaction.getPlayerId(), () -> {
+                    pendingTransactions.computeIfAbsent(transaction.getPlayerId(), id -> new ArrayList<>()).add(transaction);
+                });
+            }
+            plugin.getLogger().warning("Failed to send bulk coin changes to website: " + throwable.getMessage());
         });
     }
     
+    private void notifyPlayer(CoinTransaction transaction) {
+        Player player = plugin.getServer().getPlayer(transaction.getPlayerId());
+        if (player == null || transaction.getDelta() == 0) {
+            return;
+        }
+        String message = transaction.getDelta() > 0
+            ? plugin.getConfig().getString("messages.coins_added", "{prefix}&a+{amount} coins added to your account!")
+            : plugin.getConfig().getString("messages.coins_removed", "{prefix}&c-{amount} coins removed from your account!");
+        MessageUtils.sendMessage(player, message.replace("{amount}", String.valueOf(Math.abs(transaction.getDelta()))));
+    }
+    
     /**
      * Check if player has enough coins
      */
@@ -102,17 +439,16 @@ public class CoinManager {
      */
     public CompletableFuture<Boolean> transferCoins(UUID fromPlayerId, UUID toPlayerId, int amount) {
         return CompletableFuture.supplyAsync(() -> {
-            if (amount <= 0) return false;
+            if (amount <= 0 || fromPlayerId.equals(toPlayerId)) return false;
             
-            if (!hasEnoughCoins(fromPlayerId, amount)) {
+            // Debit and credit happen together or not at all
+            CoinTransaction debit = CoinTransaction.create(fromPlayerId, -amount, CoinTransaction.REASON_TRANSFER);
+            CoinTransaction credit = CoinTransaction.create(toPlayerId, amount, CoinTransaction.REASON_TRANSFER);
+            if (ledger.transfer(debit, credit, this::queue) != CoinLedger.Result.APPLIED) {
                 return false;
             }
-            
-            // Remove from sender
-            removePlayerCoins(fromPlayerId, amount);
-            
-            // Add to receiver
-            addPlayerCoins(toPlayerId, amount);
+            changed(fromPlayerId);
+            changed(toPlayerId);
             
             // Notify players
             Player fromPlayer = plugin.getServer().getPlayer(fromPlayerId);
@@ -129,7 +465,7 @@ public class CoinManager {
             }
             
             return true;
-        });
+        }, plugin.getExecutorManager().getCpuExecutor());
     }
     
     /**
@@ -146,46 +482,155 @@ public class CoinManager {
     }
     
     /**
-     * Give daily bonus coins
+     * Give daily bonus coins, with the rank multiplier, on the calling
+     * thread, which must be the main thread since the rank is looked up from
+     * the online player. Does not check for an earlier claim; see
+     * {@link DailyBonusManager#claim(UUID)}. Returns whether the coins were
+     * added.
      */
-    public CompletableFuture<Boolean> giveDailyBonus(UUID playerId) {
-        return CompletableFuture.supplyAsync(() -> {
-            int dailyBonus = plugin.getConfig().getInt("settings.daily_bonus", 50);
-            int bonusWithMultiplier = applyRankMultiplier(playerId, dailyBonus);
-            
-            addPlayerCoins(playerId, bonusWithMultiplier);
-            
-            Player player = plugin.getServer().getPlayer(playerId);
-            if (player != null) {
-                MessageUtils.sendMessage(player, "&aDaily bonus: +" + bonusWithMultiplier + " coins!");
+    public boolean giveDailyBonus(UUID playerId) {
+        int dailyBonus = plugin.getConfig().getInt("settings.daily_bonus", 50);
+        int bonusWithMultiplier = applyRankMultiplier(playerId, dailyBonus);
+        if (bonusWithMultiplier <= 0) {
+            return false;
+        }
+        
+        CoinTransaction transaction = CoinTransaction.create(playerId, bonusWithMultiplier, CoinTransaction.REASON_DAILY_BONUS);
+        if (applyTransaction(transaction) != CoinLedger.Result.APPLIED) {
+            return false;
+        }
+        
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player != null) {
+            MessageUtils.sendMessage(player, "&aDaily bonus: +" + bonusWithMultiplier + " coins!");
+        }
+        return true;
+    }
+    
+    /**
+     * Load player coins from website. Players the website does not know get
+     * their locally kept balance back. If the website does not answer, the
+     * local copies may be older than its balance, so they are left alone and
+     * loading is tried again while the player is online.
+     */
+    public CompletableFuture<Void> loadPlayerCoins(UUID playerId) {
+        return plugin.getWebAPIManager().lookupPlayer(playerId).thenCompose(lookup -> {
+            if (lookup.getStatus() == WebAPIManager.PlayerLookup.Status.FOUND) {
+                applyWebsiteBalance(playerId, lookup.getData().getCoins());
+                return CompletableFuture.completedFuture(null);
+            }
+            if (lookup.getStatus() == WebAPIManager.PlayerLookup.Status.UNAVAILABLE) {
+                plugin.getLogger().warning("Website unavailable, coins of " + playerId + " will be loaded later");
+                plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+                    if (plugin.getServer().getPlayer(playerId) != null) {
+                        loadPlayerCoins(playerId);
+                    }
+                }, LOAD_RETRY_TICKS);
+                return CompletableFuture.completedFuture(null);
             }
             
-            return true;
+            // Unknown to the website: restore the balance spilled when the player was
+            // evicted, on top of any change made to their account since
+            return plugin.getPlayerStateManager().takeSpilledBalance(playerId).thenCompose(spilled -> {
+                if (spilled >= 0) {
+                    restoreBalance(playerId, spilled);
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (ledger.hasAccount(playerId)) {
+                    // Still in memory from a recent session
+                    loadedBalances.add(playerId);
+                    return CompletableFuture.completedFuture(null);
+                }
+                return loadJournaledCoins(playerId);
+            });
         });
     }
     
     /**
-     * Load player coins from website
+     * Whether the player's balance was loaded, so changes made to it now
+     * land on top of their real balance
      */
-    public CompletableFuture<Void> loadPlayerCoins(UUID playerId) {
-        return plugin.getWebAPIManager().getPlayerData(playerId).thenAccept(playerData -> {
-            if (playerData != null) {
-                playerCoins.put(playerId, playerData.getCoins());
+    public boolean isBalanceLoaded(UUID playerId) {
+        return loadedBalances.contains(playerId);
+    }
+    
+    // Only for players the website answered it does not know: replay the balance
+    // from the coin journal, e.g. after a restart, or grant starting coins
+    private CompletableFuture<Void> loadJournaledCoins(UUID playerId) {
+        return journal.loadBalance(playerId).thenAccept(balance -> {
+            if (balance >= 0) {
+                restoreBalance(playerId, balance);
             } else {
-                // Set starting coins for new players
-                int startingCoins = plugin.getConfig().getInt("settings.starting_coins", 100);
-                playerCoins.put(playerId, startingCoins);
-                setPlayerCoins(playerId, startingCoins);
+                grantStartingCoins(playerId);
             }
+            loadedBalances.add(playerId);
         });
     }
     
+    // New to the website and to this server
+    private void grantStartingCoins(UUID playerId) {
+        int startingCoins = Math.max(0, plugin.getConfig().getInt("settings.starting_coins", 100));
+        CoinTransaction transaction = ledger.withLock(playerId, () -> {
+            // A change that arrived meanwhile opened the account; it is not new then
+            if (ledger.hasAccount(playerId)) {
+                return null;
+            }
+            return ledger.set(playerId, startingCoins, CoinTransaction.REASON_STARTING_COINS, this::queue);
+        });
+        if (transaction == null) {
+            return;
+        }
+        
+        changed(playerId);
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player != null) {
+            MessageUtils.sendPrefixedMessage(player, "&aYou have been given " + startingCoins + " starting coins!");
+        }
+    }
+    
+    // Put a balance that left memory back, on top of changes made since. Not a change of its own.
+    private void restoreBalance(UUID playerId, long balance) {
+        ledger.add(playerId, balance);
+        leaderboard.refresh(playerId);
+    }
+    
     /**
-     * Save all player coins to website
+     * Number of transactions the website refused since the start
      */
-    public void saveAllCoins() {
-        for (Map.Entry<UUID, Integer> entry : playerCoins.entrySet()) {
-            plugin.getWebAPIManager().updatePlayerCoins(entry.getKey(), entry.getValue());
+    public long getRejectedCount() {
+        return rejectedTransactions.get();
+    }
+    
+    public CoinLedger getLedger() {
+        return ledger;
+    }
+    
+    public CoinLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+    
+    public CoinJournal getJournal() {
+        return journal;
+    }
+    
+    public enum BulkAction {
+        ADD, REMOVE, SET
+    }
+    
+    public static class BulkResult {
+        private final int changed;
+        private final int skipped;
+        
+        public BulkResult(int changed, int skipped) {
+            this.changed = changed;
+            this.skipped = skipped;
         }
+        
+        public int getChanged() { return changed; }
+        public int getSkipped() { return skipped; }
+    }
+    
+    private static int toCoins(long balance) {
+        return (int) Math.min(Integer.MAX_VALUE, balance);
     }
 }
@@ -0,0 +1,45 @@
+package com.indusnetwork.managers;
+
+import java.util.UUID;
+
+/**
+ * One change to a coin balance. The id is generated once, when the change is
+ * made, and travels with every retry and replay, so the ledger and the
+ * website each apply a change at most once no matter how often it is sent.
+ */
+public class CoinTransaction {
+    
+    public static final String REASON_PLUGIN = "plugin";
+    public static final String REASON_ADMIN = "admin";
+    public static final String REASON_TRANSFER = "transfer";
+    public static final String REASON_DAILY_BONUS = "daily_bonus";
+    public static final String REASON_STARTING_COINS = "starting_coins";
+    public static final String REASON_VAULT = "vault";
+    
+    private final String id;
+    private final UUID playerId;
+    private final long delta;
+    private final String reason;
+    private final long createdAt;
+    
+    public CoinTransaction(String id, UUID playerId, long delta, String reason, long createdAt) {
+        this.id = id;
+        this.playerId = playerId;
+        this.delta = delta;
+        this.reason = reason;
+        this.createdAt = createdAt;
+    }
+    
+    /**
+     * New transaction with a fresh id
+     */
+    public static CoinTransaction create(UUID playerId, long delta, String reason) {
+        return new CoinTransaction(UUID.randomUUID().toString(), playerId, delta, reason, System.currentTimeMillis());
+    }
+    
+    public String getId() { return id; }
+    public UUID getPlayerId() { return playerId; }
+    public long getDelta() { return delta; }
+    public String getReason() { return reason; }
+    public long getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,258 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.utils.MessageUtils;
+import com.indusnetwork.utils.UUIDIntMap;
+import org.bukkit.entity.Player;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Once-a-day coin bonus with streaks.
+ * The players who claimed today and yesterday are kept in two primitive
+ * UUID to streak tables, so "already claimed?" is a single lookup and a new
+ * streak is yesterday's plus one. At the day rollover today's table simply
+ * becomes yesterday's and an empty one takes its place; no player is
+ * visited. Claims are stored in the local database in batches, and the two
+ * days are loaded back from it on start.
+ */
+public class DailyBonusManager {
+    
+    private final IndusNetworkPlugin plugin;
+    private final boolean enabled;
+    private final ZoneId zone;
+    private final String table;
+    
+    private final ConcurrentLinkedQueue<Claim> pendingWrites;
+    // Guarded by this
+    private long today;
+    private UUIDIntMap claimedToday;
+    private UUIDIntMap claimedYesterday;
+    private volatile boolean loaded;
+    
+    public DailyBonusManager(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("daily_bonus.enabled", true);
+        this.zone = configuredZone(plugin);
+        this.table = plugin.getConfig().getString("database.table_prefix", "indus_") + "daily_claims";
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.today = currentDay();
+        this.claimedToday = new UUIDIntMap();
+        this.claimedYesterday = new UUIDIntMap();
+        
+        if (enabled && !plugin.getExecutorManager().tryExecute(ExecutorManager.Pool.DB_IO, this::load)) {
+            plugin.getLogger().warning("Daily bonus is disabled, the database pool is saturated");
+        }
+    }
+    
+    /**
+     * Whether the player already claimed today's bonus
+     */
+    public synchronized boolean hasClaimedToday(UUID playerId) {
+        rollover();
+        return claimedToday.get(playerId, 0) > 0;
+    }
+    
+    /**
+     * Zone of daily_bonus.timezone, which days and hours are counted in.
+     * Empty or invalid values fall back to the server's zone.
+     */
+    static ZoneId configuredZone(IndusNetworkPlugin plugin) {
+        String timezone = plugin.getConfig().getString("daily_bonus.timezone", "");
+        if (timezone == null || timezone.isEmpty()) {
+            return ZoneId.systemDefault();
+        }
+        try {
+            return ZoneId.of(timezone);
+        } catch (DateTimeException e) {
+            plugin.getLogger().warning("Invalid daily_bonus.timezone '" + timezone + "', using the server time zone "
+                + ZoneId.systemDefault().getId() + ": " + e.getMessage());
+            return ZoneId.systemDefault();
+        }
+    }
+    
+    /**
+     * Current streak of the player, 0 if they claimed neither today nor yesterday
+     */
+    public synchronized int getStreak(UUID playerId) {
+        rollover();
+        int streak = claimedToday.get(playerId, 0);
+        return streak > 0 ? streak : claimedYesterday.get(playerId, 0);
+    }
+    
+    /**
+     * Give the player today's bonus unless they already had it or their
+     * balance is not loaded yet. Returns the new streak, or 0 if nothing
+     * was given. Main thread only.
+     */
+    public int claim(UUID playerId) {
+        if (!enabled || !loaded) {
+            // Until the stored claims are loaded a claim could be a repeat
+            return 0;
+        }
+        if (!plugin.getCoinManager().isBalanceLoaded(playerId)) {
+            // The bonus would open an account that loading the balance then takes as already loaded
+            return 0;
+        }
+        
+        int streak;
+        long day;
+        synchronized (this) {
+            rollover();
+            if (claimedToday.get(playerId, 0) > 0) {
+                return 0;
+            }
+            streak = claimedYesterday.get(playerId, 0) + 1;
+            claimedToday.put(playerId, streak);
+            day = today;
+        }
+        pendingWrites.add(new Claim(playerId, day, streak));
+        
+        plugin.getCoinManager().giveDailyBonus(playerId);
+        if (streak > 1) {
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player != null) {
+                MessageUtils.sendMessage(player, "&6Daily streak: &e" + streak + " days");
+            }
+        }
+        return streak;
+    }
+    
+    /**
+     * Give today's bonus to online players who have not had it, e.g. after
+     * midnight, once the stored claims are loaded or once a balance that
+     * could not be loaded on join is. Main thread only.
+     */
+    public void claimOnline() {
+        if (!enabled || !loaded) {
+            return;
+        }
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            claim(player.getUniqueId());
+        }
+    }
+    
+    /**
+     * Write queued claims in one batch
+     */
+    public CompletableFuture<Void> flush() {
+        if (pendingWrites.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(this::writeClaims, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    private void writeClaims() {
+        List<Claim> claims = new ArrayList<>();
+        Claim claim;
+        while ((claim = pendingWrites.poll()) != null) {
+            claims.add(claim);
+        }
+        if (claims.isEmpty()) {
+            return;
+        }
+        
+        try {
+            plugin.getDatabaseManager().execute("daily_bonus.write", connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "REPLACE INTO " + table + " (uuid, last_claim_day, streak, updated_at) VALUES (?, ?, ?, ?)")) {
+                    long now = System.currentTimeMillis();
+                    for (Claim pending : claims) {
+                        statement.setString(1, pending.playerId.toString());
+                        statement.setLong(2, pending.day);
+                        statement.setInt(3, pending.streak);
+                        statement.setLong(4, now);
+                        statement.addBatch();
+                    }
+                    return statement.executeBatch();
+                }
+            });
+        } catch (Exception e) {
+            // Try again with the next batch
+            pendingWrites.addAll(claims);
+            plugin.getLogger().warning("Failed to save daily bonus claims: " + e.getMessage());
+        }
+    }
+    
+    private void load() {
+        long day = currentDay();
+        try {
+            plugin.getDatabaseManager().execute("daily_bonus.load", connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    // The unique key leads with the day, so loading two days reads only their rows
+                    statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                        + "uuid VARCHAR(36) NOT NULL PRIMARY KEY, "
+                        + "last_claim_day BIGINT NOT NULL, "
+                        + "streak INT NOT NULL, "
+                        + "updated_at BIGINT NOT NULL, "
+                        + "UNIQUE (last_claim_day, uuid))");
+                }
+                
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT uuid, last_claim_day, streak FROM " + table + " WHERE last_claim_day >= ?")) {
+                    statement.setLong(1, day - 1);
+                    try (ResultSet result = statement.executeQuery()) {
+                        synchronized (this) {
+                            today = day;
+                            while (result.next()) {
+                                UUID playerId = UUID.fromString(result.getString(1));
+                                UUIDIntMap claimed = result.getLong(2) >= day ? claimedToday : claimedYesterday;
+                                claimed.put(playerId, result.getInt(3));
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+            loaded = true;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Daily bonus is disabled, the database is not available: " + e.getMessage());
+        }
+    }
+    
+    // Caller holds this
+    private void rollover() {
+        long day = currentDay();
+        if (day == today) {
+            return;
+        }
+        claimedYesterday = day == today + 1 ? claimedToday : new UUIDIntMap();
+        claimedToday = new UUIDIntMap();
+        today = day;
+    }
+    
+    private long currentDay() {
+        return LocalDate.now(zone).toEpochDay();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public synchronized int getClaimedTodayCount() {
+        rollover();
+        return claimedToday.size();
+    }
+    
+    private static final class Claim {
+        private final UUID playerId;
+        private final long day;
+        private final int streak;
+        
+        Claim(UUID playerId, long day, int streak) {
+            this.playerId = playerId;
+            this.day = day;
+            this.streak = streak;
+        }
+    }
+}
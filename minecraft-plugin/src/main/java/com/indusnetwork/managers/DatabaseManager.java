@@ -6,6 +6,7 @@ import com.zaxxer.hikari.HikariDataSource;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 
 public class DatabaseManager {
     
@@ -70,7 +71,33 @@ public class DatabaseManager {
     }
     
     public Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        MetricsManager.Endpoint metrics = plugin.getMetricsManager().endpoint(MetricsManager.DATABASE, "connection.acquire");
+        long start = System.nanoTime();
+        try {
+            Connection connection = dataSource.getConnection();
+            metrics.recordSuccess(start);
+            return connection;
+        } catch (SQLException e) {
+            metrics.record(start, true, e instanceof SQLTimeoutException, 0L, 0L);
+            throw e;
+        }
+    }
+    
+    /**
+     * Run a JDBC operation on a pooled connection and record its latency
+     * under the given operation name
+     */
+    public <T> T execute(String operation, SQLFunction<T> function) throws SQLException {
+        MetricsManager.Endpoint metrics = plugin.getMetricsManager().endpoint(MetricsManager.DATABASE, operation);
+        long start = System.nanoTime();
+        try (Connection connection = getConnection()) {
+            T result = function.apply(connection);
+            metrics.recordSuccess(start);
+            return result;
+        } catch (SQLException e) {
+            metrics.record(start, true, e instanceof SQLTimeoutException, 0L, 0L);
+            throw e;
+        }
     }
     
     public void close() {
@@ -78,4 +105,11 @@ public class DatabaseManager {
             dataSource.close();
         }
     }
+    
+    /**
+     * JDBC work done with a borrowed connection
+     */
+    public interface SQLFunction<T> {
+        T apply(Connection connection) throws SQLException;
+    }
 }
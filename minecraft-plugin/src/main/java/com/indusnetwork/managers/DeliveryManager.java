@@ -4,42 +4,83 @@ import com.indusnetwork.IndusNetworkPlugin;
 import com.indusnetwork.utils.MessageUtils;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DeliveryManager {
     
+    // Recently handled delivery ids remembered to avoid running a delivery twice
+    private static final int RECENT_DELIVERIES = 1000;
+    
     private final IndusNetworkPlugin plugin;
+    private final Set<String> inProgress;
+    private final Set<String> recentlyHandled;
+    // Deliveries whose commands ran but that the website has not marked completed yet
+    private final Set<String> needsMark;
     
     public DeliveryManager(IndusNetworkPlugin plugin) {
         this.plugin = plugin;
+        this.inProgress = ConcurrentHashMap.newKeySet();
+        this.recentlyHandled = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > RECENT_DELIVERIES;
+            }
+        }));
+        this.needsMark = ConcurrentHashMap.newKeySet();
     }
     
     /**
-     * Check for pending deliveries for a player
+     * Check for pending deliveries for a player. The returned future
+     * completes once the check and the resulting deliveries were started.
      */
     public CompletableFuture<Void> checkPlayerDeliveries(Player player) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                plugin.getWebAPIManager().checkPendingDeliveries(player.getUniqueId()).thenAccept(deliveries -> {
-                    if (deliveries.length > 0) {
-                        MessageUtils.sendPrefixedMessage(player, "&aYou have " + deliveries.length + " pending deliveries!");
-                        
-                        // Process each delivery
-                        for (var delivery : deliveries) {
-                            processDelivery(player, delivery);
-                        }
-                    }
-                });
-            } catch (Exception e) {
-                plugin.getLogger().warning("Failed to check deliveries for " + player.getName() + ": " + e.getMessage());
+        MetricsManager.Endpoint metrics = plugin.getMetricsManager().endpoint(MetricsManager.TASK, "delivery.check");
+        long start = System.nanoTime();
+        return plugin.getWebAPIManager().checkPendingDeliveries(player.getUniqueId()).thenAccept(deliveries -> {
+            // The website could not be asked; the next reconciliation poll tries again
+            metrics.record(start, deliveries == null, false, 0L, 0L);
+            if (deliveries == null) {
+                plugin.getLogger().warning("Failed to check deliveries for " + player.getName());
+                return;
+            }
+            
+            if (deliveries.length > 0) {
+                MessageUtils.sendPrefixedMessage(player, "&aYou have " + deliveries.length + " pending deliveries!");
+                
+                // Process each delivery
+                for (var delivery : deliveries) {
+                    processDelivery(player, delivery);
+                }
             }
         });
     }
     
     /**
-     * Process a single delivery
+     * Process a delivery pushed by the website through the webhook receiver
+     */
+    public void processPushedDelivery(Player player, com.indusnetwork.api.WebAPIManager.DeliveryData delivery) {
+        processDelivery(player, delivery);
+    }
+    
+    /**
+     * Process a single delivery. A delivery that arrives both by push and by
+     * the reconciliation poll is only run once, and one whose commands ran
+     * but could not be marked completed is only marked again.
      */
     private void processDelivery(Player player, com.indusnetwork.api.WebAPIManager.DeliveryData delivery) {
+        if (recentlyHandled.contains(delivery.getId()) || !inProgress.add(delivery.getId())) {
+            return;
+        }
+        if (needsMark.contains(delivery.getId())) {
+            markCompleted(delivery.getId(), player, delivery.getItemId());
+            return;
+        }
+        
         try {
             // Execute delivery commands
             for (String command : delivery.getCommands()) {
@@ -53,23 +94,43 @@ public class DeliveryManager {
             }
             
             // Mark delivery as completed
-            plugin.getWebAPIManager().markDeliveryCompleted(delivery.getId()).thenAccept(success -> {
-                if (success) {
-                    MessageUtils.sendPrefixedMessage(player, "&aDelivery completed: " + delivery.getItemId());
-                } else {
-                    plugin.getLogger().warning("Failed to mark delivery as completed: " + delivery.getId());
-                }
-            });
+            needsMark.add(delivery.getId());
+            markCompleted(delivery.getId(), player, delivery.getItemId());
             
         } catch (Exception e) {
+            inProgress.remove(delivery.getId());
             plugin.getLogger().severe("Failed to process delivery " + delivery.getId() + ": " + e.getMessage());
         }
     }
     
+    // Tell the website the delivery's commands ran. On failure it stays in
+    // needsMark and the next poll tries again. Caller added it to inProgress.
+    private void markCompleted(String deliveryId, Player player, String itemId) {
+        plugin.getWebAPIManager().markDeliveryCompleted(deliveryId).whenComplete((success, throwable) -> {
+            if (throwable == null && success) {
+                recentlyHandled.add(deliveryId);
+                needsMark.remove(deliveryId);
+                inProgress.remove(deliveryId);
+                if (player != null && player.isOnline()) {
+                    MessageUtils.sendPrefixedMessage(player, "&aDelivery completed: " + itemId);
+                }
+            } else {
+                inProgress.remove(deliveryId);
+                plugin.getLogger().warning("Failed to mark delivery as completed, retrying on the next poll: " + deliveryId);
+            }
+        });
+    }
+    
     /**
-     * Check for pending deliveries for all online players
+     * Check for pending deliveries for all online players, and mark again
+     * those that ran but could not be marked completed
      */
     public void checkPendingDeliveries() {
+        for (String deliveryId : needsMark) {
+            if (inProgress.add(deliveryId)) {
+                markCompleted(deliveryId, null, null);
+            }
+        }
         for (Player player : plugin.getServer().getOnlinePlayers()) {
             checkPlayerDeliveries(player);
         }
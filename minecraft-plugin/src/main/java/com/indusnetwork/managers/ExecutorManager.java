@@ -0,0 +1,334 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ExecutorManager {
+    
+    private final IndusNetworkPlugin plugin;
+    private final Map<Pool, PoolExecutor> executors;
+    
+    public ExecutorManager(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.executors = new EnumMap<>(Pool.class);
+        
+        boolean virtualThreads = plugin.getConfig().getBoolean("executors.virtual_threads", false);
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            plugin.getLogger().warning("Virtual threads require Java 21+, using platform thread pools instead");
+            virtualThreads = false;
+        }
+        
+        for (Pool pool : Pool.values()) {
+            executors.put(pool, createExecutor(pool, virtualThreads && pool.isIO()));
+        }
+    }
+    
+    private PoolExecutor createExecutor(Pool pool, boolean virtual) {
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("executors." + pool.getId().replace('-', '_'));
+        int threads = section != null ? section.getInt("threads", pool.getDefaultThreads()) : pool.getDefaultThreads();
+        int queue = section != null ? section.getInt("queue", pool.getDefaultQueue()) : pool.getDefaultQueue();
+        String rejection = section != null ? section.getString("rejection", pool.getDefaultRejection()) : pool.getDefaultRejection();
+        
+        String prefix = "IndusNetwork-" + pool.getId() + "-";
+        PoolExecutor executor = virtual
+            ? new VirtualPoolExecutor(pool, prefix, Math.max(1, threads) + Math.max(0, queue))
+            : new PlatformPoolExecutor(prefix, Math.max(1, threads), Math.max(1, queue), createRejectionHandler(pool, rejection));
+        
+        plugin.getLogger().info("Executor " + pool.getId() + ": " + (virtual ? "virtual threads" : threads + " threads")
+            + ", queue " + queue + ", rejection " + rejection);
+        return executor;
+    }
+    
+    private RejectedExecutionHandler createRejectionHandler(Pool pool, String policy) {
+        RejectedExecutionHandler delegate;
+        switch (policy.toLowerCase()) {
+            case "caller_runs":
+                delegate = new ThreadPoolExecutor.CallerRunsPolicy();
+                break;
+            case "discard_oldest":
+                delegate = new ThreadPoolExecutor.DiscardOldestPolicy();
+                break;
+            case "abort":
+            default:
+                delegate = new ThreadPoolExecutor.AbortPolicy();
+                break;
+        }
+        
+        return (task, executor) -> {
+            long rejected = executors.get(pool).recordRejection();
+            // Log the first rejection and then every 100th to avoid flooding the console
+            if (rejected == 1 || rejected % 100 == 0) {
+                plugin.getLogger().warning("Executor " + pool.getId() + " is saturated (" + rejected + " tasks rejected so far)");
+            }
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+    
+    /**
+     * Executor for website I/O
+     */
+    public ExecutorService getWebExecutor() {
+        return getExecutor(Pool.WEB_IO);
+    }
+    
+    /**
+     * Executor for database and LuckPerms I/O
+     */
+    public ExecutorService getDatabaseExecutor() {
+        return getExecutor(Pool.DB_IO);
+    }
+    
+    /**
+     * Executor for in-memory computation
+     */
+    public ExecutorService getCpuExecutor() {
+        return getExecutor(Pool.CPU);
+    }
+    
+    public ExecutorService getExecutor(Pool pool) {
+        return executors.get(pool).getService();
+    }
+    
+    /**
+     * Run a fire-and-forget task on the pool. Returns false instead of
+     * throwing if a saturated or stopped pool rejects it; the rejection is
+     * already counted and logged, so the caller only decides what to skip.
+     */
+    public boolean tryExecute(Pool pool, Runnable task) {
+        try {
+            getExecutor(pool).execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Number of tasks waiting in the pool's queue
+     */
+    public int getQueueDepth(Pool pool) {
+        return executors.get(pool).getQueueDepth();
+    }
+    
+    /**
+     * Number of tasks rejected by the pool since startup
+     */
+    public long getRejectedCount(Pool pool) {
+        return executors.get(pool).getRejectedCount();
+    }
+    
+    /**
+     * Stop accepting tasks and wait briefly for queued work to finish
+     */
+    public void shutdown() {
+        for (PoolExecutor executor : executors.values()) {
+            executor.getService().shutdown();
+        }
+        
+        for (Map.Entry<Pool, PoolExecutor> entry : executors.entrySet()) {
+            try {
+                if (!entry.getValue().getService().awaitTermination(5, TimeUnit.SECONDS)) {
+                    plugin.getLogger().warning("Executor " + entry.getKey().getId() + " did not finish in time, cancelling remaining tasks");
+                    entry.getValue().getService().shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                entry.getValue().getService().shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    public enum Pool {
+        WEB_IO("web-io", 8, 512, "caller_runs", true),
+        DB_IO("db-io", 4, 1024, "abort", true),
+        CPU("cpu", 2, 256, "abort", false);
+        
+        private final String id;
+        private final int defaultThreads;
+        private final int defaultQueue;
+        private final String defaultRejection;
+        private final boolean io;
+        
+        Pool(String id, int defaultThreads, int defaultQueue, String defaultRejection, boolean io) {
+            this.id = id;
+            this.defaultThreads = defaultThreads;
+            this.defaultQueue = defaultQueue;
+            this.defaultRejection = defaultRejection;
+            this.io = io;
+        }
+        
+        public String getId() { return id; }
+        public int getDefaultThreads() { return defaultThreads; }
+        public int getDefaultQueue() { return defaultQueue; }
+        public String getDefaultRejection() { return defaultRejection; }
+        public boolean isIO() { return io; }
+    }
+    
+    // Common view over platform and virtual thread pools
+    private abstract static class PoolExecutor {
+        private final AtomicLong rejected = new AtomicLong();
+        
+        abstract ExecutorService getService();
+        abstract int getQueueDepth();
+        
+        long recordRejection() {
+            return rejected.incrementAndGet();
+        }
+        
+        long getRejectedCount() {
+            return rejected.get();
+        }
+    }
+    
+    // Bounded ThreadPoolExecutor with named daemon threads
+    private class PlatformPoolExecutor extends PoolExecutor {
+        private final ThreadPoolExecutor service;
+        
+        PlatformPoolExecutor(String prefix, int threads, int queue, RejectedExecutionHandler handler) {
+            this.service = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), new NamedThreadFactory(prefix), handler);
+            this.service.allowCoreThreadTimeOut(true);
+        }
+        
+        @Override
+        ExecutorService getService() {
+            return service;
+        }
+        
+        @Override
+        int getQueueDepth() {
+            return service.getQueue().size();
+        }
+    }
+    
+    // Virtual thread per task, bounded by a permit count instead of a queue
+    private class VirtualPoolExecutor extends PoolExecutor {
+        private final ExecutorService service;
+        private final Semaphore permits;
+        private final int limit;
+        
+        VirtualPoolExecutor(Pool pool, String prefix, int limit) {
+            ExecutorService virtual = VirtualThreads.newExecutor(prefix);
+            this.permits = new Semaphore(limit);
+            this.limit = limit;
+            this.service = new AbstractExecutorService() {
+                @Override
+                public void execute(Runnable command) {
+                    if (!permits.tryAcquire()) {
+                        long rejected = recordRejection();
+                        if (rejected == 1 || rejected % 100 == 0) {
+                            plugin.getLogger().warning("Executor " + pool.getId() + " is saturated (" + rejected + " tasks rejected so far)");
+                        }
+                        throw new RejectedExecutionException("Executor " + pool.getId() + " is saturated");
+                    }
+                    try {
+                        virtual.execute(() -> {
+                            try {
+                                command.run();
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        permits.release();
+                        throw e;
+                    }
+                }
+                
+                @Override
+                public void shutdown() {
+                    virtual.shutdown();
+                }
+                
+                @Override
+                public List<Runnable> shutdownNow() {
+                    return virtual.shutdownNow();
+                }
+                
+                @Override
+                public boolean isShutdown() {
+                    return virtual.isShutdown();
+                }
+                
+                @Override
+                public boolean isTerminated() {
+                    return virtual.isTerminated();
+                }
+                
+                @Override
+                public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+                    return virtual.awaitTermination(timeout, unit);
+                }
+            };
+        }
+        
+        @Override
+        ExecutorService getService() {
+            return service;
+        }
+        
+        @Override
+        int getQueueDepth() {
+            return limit - permits.availablePermits();
+        }
+    }
+    
+    private class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setUncaughtExceptionHandler((t, e) ->
+                plugin.getLogger().severe("Uncaught exception in " + t.getName() + ": " + e.getMessage()));
+            return thread;
+        }
+    }
+    
+    // Reflective access to the Java 21 virtual thread API, so the plugin still builds for Java 11
+    private static final class VirtualThreads {
+        
+        static boolean isSupported() {
+            try {
+                Thread.class.getMethod("ofVirtual");
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+        
+        static ExecutorService newExecutor(String prefix) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+                ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+                return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads are not available", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import com.indusnetwork.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters for website calls, database access and
+ * background tasks, grouped by category ("web", "db", "task") and endpoint.
+ * Endpoints are looked up by the constant route/operation names used in the
+ * code, so recording does not allocate once an endpoint has been seen.
+ */
+public class MetricsManager {
+    
+    public static final String WEB = "web";
+    public static final String DATABASE = "db";
+    public static final String TASK = "task";
+    
+    private final IndusNetworkPlugin plugin;
+    private final ConcurrentMap<String, ConcurrentMap<String, Endpoint>> categories;
+    private volatile long resetAt;
+    
+    public MetricsManager(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.categories = new ConcurrentHashMap<>();
+        this.resetAt = System.currentTimeMillis();
+    }
+    
+    /**
+     * Metrics for an endpoint, created on first use
+     */
+    public Endpoint endpoint(String category, String name) {
+        ConcurrentMap<String, Endpoint> endpoints = categories.get(category);
+        if (endpoints == null) {
+            endpoints = categories.computeIfAbsent(category, key -> new ConcurrentHashMap<>());
+        }
+        Endpoint endpoint = endpoints.get(name);
+        if (endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(name, Endpoint::new);
+        }
+        return endpoint;
+    }
+    
+    /**
+     * Endpoints of a category, or an empty map if nothing was recorded yet
+     */
+    public Map<String, Endpoint> getEndpoints(String category) {
+        Map<String, Endpoint> endpoints = categories.get(category);
+        return endpoints != null ? endpoints : Map.of();
+    }
+    
+    /**
+     * Time at which the metrics were last reset
+     */
+    public long getResetAt() {
+        return resetAt;
+    }
+    
+    public void reset() {
+        for (ConcurrentMap<String, Endpoint> endpoints : categories.values()) {
+            for (Endpoint endpoint : endpoints.values()) {
+                endpoint.reset();
+            }
+        }
+        resetAt = System.currentTimeMillis();
+        plugin.getLogger().info("Metrics have been reset");
+    }
+    
+    // Counters and latency histogram for one endpoint or operation
+    public static class Endpoint {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        
+        Endpoint(String name) {
+            this.name = name;
+        }
+        
+        /**
+         * Record a successful call
+         */
+        public void recordSuccess(long startNanos) {
+            record(startNanos, false, false, 0L, 0L);
+        }
+        
+        /**
+         * Record a call with its outcome and payload sizes
+         */
+        public void record(long startNanos, boolean error, boolean timeout, long sent, long received) {
+            latency.recordNanos(System.nanoTime() - startNanos);
+            requests.increment();
+            if (error) {
+                errors.increment();
+            }
+            if (timeout) {
+                timeouts.increment();
+            }
+            if (sent > 0) {
+                bytesSent.add(sent);
+            }
+            if (received > 0) {
+                bytesReceived.add(received);
+            }
+        }
+        
+        /**
+         * Record a call that failed fast without being attempted (open circuit, full bulkhead)
+         */
+        public void recordRejected() {
+            rejected.increment();
+        }
+        
+        void reset() {
+            latency.reset();
+            requests.reset();
+            errors.reset();
+            timeouts.reset();
+            rejected.reset();
+            bytesSent.reset();
+            bytesReceived.reset();
+        }
+        
+        public String getName() { return name; }
+        public LatencyHistogram getLatency() { return latency; }
+        public long getRequests() { return requests.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public long getTimeouts() { return timeouts.sum(); }
+        public long getRejected() { return rejected.sum(); }
+        public long getBytesSent() { return bytesSent.sum(); }
+        public long getBytesReceived() { return bytesReceived.sum(); }
+    }
+}
@@ -0,0 +1,313 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import org.bukkit.entity.Player;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lifecycle of per-player state (coin balance, tracked stats).
+ * Online players are hot. After quitting, or after their balance changed
+ * while offline, players are warm: kept in memory for fast relogs in a
+ * bounded tier ordered by last activity. Warm players are evicted once they
+ * exceed player_state.warm_ttl or the tier exceeds warm_max_entries; their
+ * balance is then spilled to the local database and added back from there
+ * when they rejoin and the website does not know them. A spilled balance is
+ * discarded once the website's balance for the player is taken over.
+ */
+public class PlayerStateManager {
+    
+    private final IndusNetworkPlugin plugin;
+    private final int warmMaxEntries;
+    private final long warmTtlMillis;
+    private final boolean spillEnabled;
+    private final String table;
+    
+    private final Set<UUID> online;
+    // Offline players still in memory and when they were last active, least recent first
+    private final LinkedHashMap<UUID, Long> warm;
+    // Spilled balances not yet written, so a quick rejoin still finds them
+    private final ConcurrentMap<UUID, Long> pendingSpills;
+    // Serialises spill writes and restores so a balance is never restored twice
+    private final Object spillLock = new Object();
+    private volatile boolean spillReady;
+    
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+    
+    public PlayerStateManager(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.warmMaxEntries = Math.max(0, plugin.getConfig().getInt("player_state.warm_max_entries", 500));
+        this.warmTtlMillis = 1000L * Math.max(0, plugin.getConfig().getInt("player_state.warm_ttl", 900));
+        this.spillEnabled = plugin.getConfig().getBoolean("player_state.spill_to_database", true);
+        this.table = plugin.getConfig().getString("database.table_prefix", "indus_") + "player_state";
+        this.online = ConcurrentHashMap.newKeySet();
+        this.warm = new LinkedHashMap<>(16, 0.75f, true);
+        this.pendingSpills = new ConcurrentHashMap<>();
+        
+        // Players already online after a reload
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            online.add(player.getUniqueId());
+        }
+        
+        if (spillEnabled && !plugin.getExecutorManager().tryExecute(ExecutorManager.Pool.DB_IO, this::createSpillTable)) {
+            plugin.getLogger().warning("Player state will not be spilled, the database pool is saturated");
+        }
+    }
+    
+    /**
+     * Mark the player hot. Returns true if their state was still warm in memory.
+     */
+    public synchronized boolean playerJoined(UUID playerId) {
+        online.add(playerId);
+        return warm.remove(playerId) != null;
+    }
+    
+    /**
+     * Move the player to the warm tier, evicting the least recent warm
+     * players if the tier is full
+     */
+    public void playerQuit(UUID playerId) {
+        synchronized (this) {
+            online.remove(playerId);
+            warm.put(playerId, System.currentTimeMillis());
+        }
+        if (warmSize() > warmMaxEntries) {
+            // If the pool is saturated the next quit tries again
+            plugin.getExecutorManager().tryExecute(ExecutorManager.Pool.DB_IO, this::evictExpired);
+        }
+    }
+    
+    /**
+     * Record activity for a player who may be offline, e.g. a Vault deposit,
+     * so their state is tracked and eventually evicted like everyone else's
+     */
+    public void touch(UUID playerId) {
+        if (online.contains(playerId)) {
+            return;
+        }
+        synchronized (this) {
+            if (!online.contains(playerId)) {
+                warm.put(playerId, System.currentTimeMillis());
+            }
+        }
+    }
+    
+    /**
+     * Evict warm players that are past their TTL or beyond the tier size
+     */
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        List<UUID> candidates = new ArrayList<>();
+        synchronized (this) {
+            int overflow = warm.size() - warmMaxEntries;
+            Iterator<Map.Entry<UUID, Long>> iterator = warm.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, Long> entry = iterator.next();
+                if (overflow <= 0 && now - entry.getValue() < warmTtlMillis) {
+                    break;
+                }
+                candidates.add(entry.getKey());
+                overflow--;
+            }
+        }
+        
+        for (UUID playerId : candidates) {
+            evict(playerId);
+        }
+    }
+    
+    private void evict(UUID playerId) {
+        CoinManager coinManager = plugin.getCoinManager();
+        long balance;
+        synchronized (this) {
+            if (online.contains(playerId) || !warm.containsKey(playerId)) {
+                return; // Rejoined since the candidates were picked
+            }
+            if (coinManager.hasPendingTransactions(playerId)) {
+                // Not handed to the website yet; keep the player until a later sweep
+                warm.put(playerId, System.currentTimeMillis());
+                balance = -1L;
+            } else {
+                warm.remove(playerId);
+                balance = coinManager.evictPlayer(playerId);
+                plugin.getStatsManager().removePlayer(playerId);
+                if (spillEnabled && spillReady && balance >= 0) {
+                    pendingSpills.put(playerId, balance);
+                }
+                evictions.incrementAndGet();
+            }
+        }
+        if (balance < 0 && coinManager.hasPendingTransactions(playerId)) {
+            coinManager.flushPlayerCoins(playerId);
+            return;
+        }
+        
+        if (spillEnabled && spillReady && balance >= 0) {
+            writeSpill(playerId, balance);
+        }
+    }
+    
+    /**
+     * Take the balance spilled when the player was evicted, or -1 if there
+     * is none. The spilled copy is removed so it is restored only once.
+     */
+    public CompletableFuture<Long> takeSpilledBalance(UUID playerId) {
+        if (!spillEnabled) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (spillLock) {
+                // Evicted so recently that the spill was not written yet; it will be skipped
+                Long pending = pendingSpills.remove(playerId);
+                if (pending != null) {
+                    restores.incrementAndGet();
+                    return pending;
+                }
+                if (!spillReady) {
+                    return -1L;
+                }
+                
+                try {
+                    long balance = plugin.getDatabaseManager().execute("player_state.restore", connection -> {
+                        try (PreparedStatement select = connection.prepareStatement(
+                                "SELECT coins FROM " + table + " WHERE uuid = ?")) {
+                            select.setString(1, playerId.toString());
+                            try (ResultSet result = select.executeQuery()) {
+                                if (!result.next()) {
+                                    return -1L;
+                                }
+                                long coins = result.getLong(1);
+                                try (PreparedStatement delete = connection.prepareStatement(
+                                        "DELETE FROM " + table + " WHERE uuid = ?")) {
+                                    delete.setString(1, playerId.toString());
+                                    delete.executeUpdate();
+                                }
+                                return coins;
+                            }
+                        }
+                    });
+                    if (balance >= 0) {
+                        restores.incrementAndGet();
+                    }
+                    return balance;
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Failed to restore spilled state for " + playerId + ": " + e.getMessage());
+                    return -1L;
+                }
+            }
+        }, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    /**
+     * Drop the balance spilled for the player, if any, because a newer one
+     * was taken over from the website
+     */
+    public void discardSpill(UUID playerId) {
+        if (!spillEnabled) {
+            return;
+        }
+        // Not written yet; writeSpill skips it once it is gone
+        pendingSpills.remove(playerId);
+        if (!spillReady) {
+            return;
+        }
+        
+        boolean queued = plugin.getExecutorManager().tryExecute(ExecutorManager.Pool.DB_IO, () -> {
+            synchronized (spillLock) {
+                try {
+                    plugin.getDatabaseManager().execute("player_state.discard", connection -> {
+                        try (PreparedStatement statement = connection.prepareStatement(
+                                "DELETE FROM " + table + " WHERE uuid = ?")) {
+                            statement.setString(1, playerId.toString());
+                            return statement.executeUpdate();
+                        }
+                    });
+                } catch (Exception e) {
+                    plugin.getLogger().warning("Failed to discard spilled state for " + playerId + ": " + e.getMessage());
+                }
+            }
+        });
+        if (!queued) {
+            plugin.getLogger().warning("Failed to discard spilled state for " + playerId + ": the database pool is saturated");
+        }
+    }
+    
+    private void writeSpill(UUID playerId, long balance) {
+        synchronized (spillLock) {
+            if (!pendingSpills.remove(playerId, balance)) {
+                return; // Already restored by a rejoin
+            }
+            try {
+                plugin.getDatabaseManager().execute("player_state.spill", connection -> {
+                    // REPLACE works on both MySQL and SQLite
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "REPLACE INTO " + table + " (uuid, coins, updated_at) VALUES (?, ?, ?)")) {
+                        statement.setString(1, playerId.toString());
+                        statement.setLong(2, balance);
+                        statement.setLong(3, System.currentTimeMillis());
+                        return statement.executeUpdate();
+                    }
+                });
+                spills.incrementAndGet();
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to spill state for " + playerId + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private void createSpillTable() {
+        try {
+            plugin.getDatabaseManager().execute("player_state.create", connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "CREATE TABLE IF NOT EXISTS " + table + " ("
+                            + "uuid VARCHAR(36) NOT NULL PRIMARY KEY, "
+                            + "coins BIGINT NOT NULL, "
+                            + "updated_at BIGINT NOT NULL)")) {
+                    return statement.execute();
+                }
+            });
+            spillReady = true;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Player state spill is disabled, the database is not available: " + e.getMessage());
+        }
+    }
+    
+    public int getOnlineCount() {
+        return online.size();
+    }
+    
+    public synchronized int warmSize() {
+        return warm.size();
+    }
+    
+    public int getWarmMaxEntries() {
+        return warmMaxEntries;
+    }
+    
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    public long getSpillCount() {
+        return spills.get();
+    }
+    
+    public long getRestoreCount() {
+        return restores.get();
+    }
+}
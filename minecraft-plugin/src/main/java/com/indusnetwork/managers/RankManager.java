@@ -52,6 +52,18 @@ public class RankManager {
      * Update player's rank both in-game and on website
      */
     public CompletableFuture<Boolean> updatePlayerRank(Player player, String rankId) {
+        return changePlayerRank(player, rankId, true);
+    }
+    
+    /**
+     * Apply a rank the website reported in-game only. It already is the
+     * website's rank, so it is not sent back.
+     */
+    public CompletableFuture<Boolean> applyWebsiteRank(Player player, String rankId) {
+        return changePlayerRank(player, rankId, false);
+    }
+    
+    private CompletableFuture<Boolean> changePlayerRank(Player player, String rankId, boolean sendToWebsite) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 RankData rankData = ranks.get(rankId.toLowerCase());
@@ -73,11 +85,13 @@ public class RankManager {
                     luckPerms.getUserManager().saveUser(user);
                     
                     // Update on website
-                    plugin.getWebAPIManager().updatePlayerRank(player.getUniqueId(), rankId).thenAccept(success -> {
-                        if (!success) {
-                            plugin.getLogger().warning("Failed to update rank on website for " + player.getName());
-                        }
-                    });
+                    if (sendToWebsite) {
+                        plugin.getWebAPIManager().updatePlayerRank(player.getUniqueId(), rankId).thenAccept(success -> {
+                            if (!success) {
+                                plugin.getLogger().warning("Failed to update rank on website for " + player.getName());
+                            }
+                        });
+                    }
                     
                     // Notify player
                     String message = plugin.getConfig().getString("messages.rank_updated", "{prefix}&aYour rank has been updated to {rank}&a!")
@@ -93,7 +107,7 @@ public class RankManager {
                 plugin.getLogger().severe("Failed to update rank for " + player.getName() + ": " + e.getMessage());
                 return false;
             }
-        });
+        }, plugin.getExecutorManager().getDatabaseExecutor());
     }
     
     /**
@@ -0,0 +1,464 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recent per-player stats in hourly buckets, for "this week" style queries.
+ * Each player has a ring of one week of hourly buckets per metric; a
+ * windowed total sums at most 168 buckets and never looks at raw events.
+ * Buckets are stored in the local database as one row per player and day,
+ * the 24 hours of each metric delta- and varint-encoded column by column,
+ * so a quiet day takes a few dozen bytes. Rings are filled from the stored
+ * days when a player starts being tracked, and windows longer than the ring
+ * add the stored days before it, up to the retention period. Hours and days
+ * follow the local clock of the daily bonus timezone.
+ */
+public class StatsHistory {
+    
+    public static final int KILLS = 0;
+    public static final int DEATHS = 1;
+    public static final int PLAYTIME = 2;
+    public static final int BLOCKS_BROKEN = 3;
+    public static final int BLOCKS_PLACED = 4;
+    private static final int METRICS = 5;
+    
+    private static final int HOURS_PER_DAY = 24;
+    private static final int RING_HOURS = 7 * HOURS_PER_DAY;
+    private static final long SECONDS_PER_HOUR = 60L * 60L;
+    
+    private final IndusNetworkPlugin plugin;
+    private final boolean enabled;
+    private final String table;
+    private final int retentionDays;
+    private final ZoneId zone;
+    private final Map<UUID, Ring> rings;
+    // Rings of removed players until they are stored, so a quick rejoin keeps them
+    private final Map<UUID, Ring> pendingStores;
+    private final CompletableFuture<Boolean> tableReady;
+    private final AtomicLong storedDays = new AtomicLong();
+    
+    public StatsHistory(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("stats_history.enabled", true);
+        this.table = plugin.getConfig().getString("database.table_prefix", "indus_") + "stats_history";
+        this.retentionDays = Math.max(7, plugin.getConfig().getInt("stats_history.retention_days", 90));
+        // Same days as the daily bonus
+        this.zone = DailyBonusManager.configuredZone(plugin);
+        this.rings = new ConcurrentHashMap<>();
+        this.pendingStores = new ConcurrentHashMap<>();
+        this.tableReady = enabled
+            ? CompletableFuture.supplyAsync(this::createTable, plugin.getExecutorManager().getDatabaseExecutor())
+            : CompletableFuture.completedFuture(false);
+    }
+    
+    /**
+     * Start tracking the player, loading their stored week if they were
+     * not tracked already
+     */
+    public void track(UUID playerId) {
+        if (!enabled) {
+            return;
+        }
+        Ring pending = pendingStores.get(playerId);
+        if (pending != null) {
+            // Removed but not stored yet; loading now could miss its last hours
+            rings.putIfAbsent(playerId, pending);
+            return;
+        }
+        Ring ring = new Ring(currentHour());
+        if (rings.putIfAbsent(playerId, ring) == null) {
+            tableReady.thenAcceptAsync(ready -> load(playerId, ring, ready),
+                plugin.getExecutorManager().getDatabaseExecutor());
+        }
+    }
+    
+    /**
+     * Add to the current hour of a metric
+     */
+    public void record(UUID playerId, int metric, int amount) {
+        Ring ring = rings.get(playerId);
+        if (ring != null && amount > 0) {
+            ring.add(currentHour(), metric, amount);
+        }
+    }
+    
+    /**
+     * Totals of every metric, indexed by metric, over the last given hours
+     * including the current one. Windows up to a week are summed from memory;
+     * longer ones, up to the retention period, also read the stored days
+     * before the ring. Completes with null if the player is not tracked or
+     * the stored days cannot be read.
+     */
+    public CompletableFuture<long[]> getTotals(UUID playerId, int hours) {
+        Ring ring = rings.get(playerId);
+        if (ring == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long now = currentHour();
+        long[] totals = new long[METRICS];
+        for (int metric = 0; metric < METRICS; metric++) {
+            totals[metric] = ring.sum(now, metric, Math.min(hours, RING_HOURS));
+        }
+        if (hours <= RING_HOURS || !tableReady.getNow(false)) {
+            return CompletableFuture.completedFuture(totals);
+        }
+        
+        long fromHour = now - Math.min(hours, retentionDays * HOURS_PER_DAY) + 1;
+        try {
+            return CompletableFuture.supplyAsync(() -> addStored(playerId, fromHour, now - RING_HOURS, totals),
+                plugin.getExecutorManager().getDatabaseExecutor());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+    
+    // Add the stored hours from fromHour to toHour to the totals
+    private long[] addStored(UUID playerId, long fromHour, long toHour, long[] totals) {
+        try {
+            return plugin.getDatabaseManager().execute("stats_history.totals", connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT day, data FROM " + table + " WHERE uuid = ? AND day >= ? AND day <= ?")) {
+                    statement.setString(1, playerId.toString());
+                    statement.setLong(2, fromHour / HOURS_PER_DAY);
+                    statement.setLong(3, toHour / HOURS_PER_DAY);
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            long firstHour = result.getLong(1) * HOURS_PER_DAY;
+                            int[] day = decodeDay(result.getBytes(2));
+                            for (int metric = 0; metric < METRICS; metric++) {
+                                for (int h = 0; h < HOURS_PER_DAY; h++) {
+                                    long bucketHour = firstHour + h;
+                                    if (bucketHour >= fromHour && bucketHour <= toHour) {
+                                        totals[metric] += day[metric * HOURS_PER_DAY + h];
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+                return totals;
+            });
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to read stats history for " + playerId + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Store and stop tracking the player
+     */
+    public void removePlayer(UUID playerId) {
+        Ring ring = rings.remove(playerId);
+        if (ring != null) {
+            pendingStores.put(playerId, ring);
+            // If the pool is saturated the ring stays pending until the next flush
+            plugin.getExecutorManager().tryExecute(ExecutorManager.Pool.DB_IO, () -> storeRemoved(playerId, ring));
+        }
+    }
+    
+    /**
+     * Store the days changed since the last flush of every tracked player,
+     * and of removed players whose store did not run yet
+     */
+    public CompletableFuture<Void> flush() {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            for (Map.Entry<UUID, Ring> entry : rings.entrySet()) {
+                store(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<UUID, Ring> entry : pendingStores.entrySet()) {
+                storeRemoved(entry.getKey(), entry.getValue());
+            }
+        }, plugin.getExecutorManager().getDatabaseExecutor());
+    }
+    
+    private void storeRemoved(UUID playerId, Ring ring) {
+        store(playerId, ring);
+        pendingStores.remove(playerId, ring);
+    }
+    
+    private void store(UUID playerId, Ring ring) {
+        if (!tableReady.getNow(false)) {
+            return;
+        }
+        
+        List<int[]> days;
+        long firstDay;
+        // Hours of the first day before this one are outside the ring
+        long ringStart;
+        synchronized (ring) {
+            if (!ring.loaded || ring.dirtyFromHour < 0) {
+                return;
+            }
+            // The local clock can step back an hour when daylight saving ends
+            long now = Math.max(currentHour(), ring.hour);
+            ring.advance(now);
+            ringStart = now - RING_HOURS + 1;
+            firstDay = Math.max(ring.dirtyFromHour, ringStart) / HOURS_PER_DAY;
+            days = new ArrayList<>();
+            for (long day = firstDay; day <= now / HOURS_PER_DAY; day++) {
+                days.add(ring.copyDay(day, now));
+            }
+            ring.dirtyFromHour = -1;
+        }
+        
+        try {
+            plugin.getDatabaseManager().execute("stats_history.store", connection -> {
+                if (firstDay * HOURS_PER_DAY < ringStart) {
+                    // Keep the stored hours the ring no longer holds instead of zeroing them
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "SELECT data FROM " + table + " WHERE uuid = ? AND day = ?")) {
+                        statement.setString(1, playerId.toString());
+                        statement.setLong(2, firstDay);
+                        try (ResultSet result = statement.executeQuery()) {
+                            if (result.next()) {
+                                int[] stored = decodeDay(result.getBytes(1));
+                                int[] merged = days.get(0);
+                                int outside = (int) (ringStart - firstDay * HOURS_PER_DAY);
+                                for (int metric = 0; metric < METRICS; metric++) {
+                                    System.arraycopy(stored, metric * HOURS_PER_DAY, merged, metric * HOURS_PER_DAY, outside);
+                                }
+                            }
+                        }
+                    }
+                }
+                
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "REPLACE INTO " + table + " (uuid, day, data) VALUES (?, ?, ?)")) {
+                    for (int i = 0; i < days.size(); i++) {
+                        statement.setString(1, playerId.toString());
+                        statement.setLong(2, firstDay + i);
+                        statement.setBytes(3, encodeDay(days.get(i)));
+                        statement.addBatch();
+                    }
+                    return statement.executeBatch();
+                }
+            });
+            storedDays.addAndGet(days.size());
+        } catch (Exception e) {
+            synchronized (ring) {
+                long firstHour = Math.max(firstDay * HOURS_PER_DAY, ringStart);
+                ring.dirtyFromHour = ring.dirtyFromHour < 0 ? firstHour : Math.min(ring.dirtyFromHour, firstHour);
+            }
+            plugin.getLogger().warning("Failed to store stats history for " + playerId + ": " + e.getMessage());
+        }
+    }
+    
+    private void load(UUID playerId, Ring ring, boolean ready) {
+        if (!ready) {
+            return;
+        }
+        
+        long now = currentHour();
+        try {
+            plugin.getDatabaseManager().execute("stats_history.load", connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT day, data FROM " + table + " WHERE uuid = ? AND day >= ?")) {
+                    statement.setString(1, playerId.toString());
+                    statement.setLong(2, (now - RING_HOURS + 1) / HOURS_PER_DAY);
+                    try (ResultSet result = statement.executeQuery()) {
+                        synchronized (ring) {
+                            while (result.next()) {
+                                ring.addDay(result.getLong(1), decodeDay(result.getBytes(2)), now);
+                            }
+                            // Stored days are only overwritten once they were merged in
+                            ring.loaded = true;
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // Left unloaded, so this session's hours are not stored over the player's history
+            plugin.getLogger().warning("Failed to load stats history for " + playerId + ": " + e.getMessage());
+        }
+    }
+    
+    private boolean createTable() {
+        try {
+            plugin.getDatabaseManager().execute("stats_history.create", connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                        + "uuid VARCHAR(36) NOT NULL, "
+                        + "day BIGINT NOT NULL, "
+                        + "data BLOB NOT NULL, "
+                        + "PRIMARY KEY (uuid, day))");
+                }
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "DELETE FROM " + table + " WHERE day < ?")) {
+                    statement.setLong(1, currentHour() / HOURS_PER_DAY - retentionDays);
+                    return statement.executeUpdate();
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Stats history will not be stored, the database is not available: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Hours since the epoch on the local clock, so days start at local midnight
+    private long currentHour() {
+        return LocalDateTime.now(zone).toEpochSecond(ZoneOffset.UTC) / SECONDS_PER_HOUR;
+    }
+    
+    // Column by column: per metric, the 24 hours as zigzag varint deltas
+    private static byte[] encodeDay(int[] hours) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(METRICS * HOURS_PER_DAY);
+        for (int metric = 0; metric < METRICS; metric++) {
+            int previous = 0;
+            for (int h = 0; h < HOURS_PER_DAY; h++) {
+                int value = hours[metric * HOURS_PER_DAY + h];
+                int delta = value - previous;
+                writeVarint(out, (delta << 1) ^ (delta >> 31));
+                previous = value;
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    private static int[] decodeDay(byte[] data) {
+        int[] hours = new int[METRICS * HOURS_PER_DAY];
+        int[] position = { 0 };
+        for (int metric = 0; metric < METRICS; metric++) {
+            int value = 0;
+            for (int h = 0; h < HOURS_PER_DAY; h++) {
+                int zigzag = readVarint(data, position);
+                value += (zigzag >>> 1) ^ -(zigzag & 1);
+                hours[metric * HOURS_PER_DAY + h] = value;
+            }
+        }
+        return hours;
+    }
+    
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        while (position[0] < data.length) {
+            int b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return value;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public int getTrackedCount() {
+        return rings.size();
+    }
+    
+    public long getStoredDayCount() {
+        return storedDays.get();
+    }
+    
+    // One week of hourly buckets per metric; guarded by its own monitor
+    private static final class Ring {
+        private final int[] buckets = new int[METRICS * RING_HOURS];
+        // Hour of the newest bucket; older hours follow it backwards around the ring
+        private long hour;
+        // Oldest hour changed since the last store, or -1
+        private long dirtyFromHour = -1;
+        private boolean loaded;
+        
+        Ring(long hour) {
+            this.hour = hour;
+        }
+        
+        synchronized void add(long now, int metric, int amount) {
+            advance(now);
+            int index = metric * RING_HOURS + (int) (now % RING_HOURS);
+            buckets[index] = (int) Math.min(Integer.MAX_VALUE, (long) buckets[index] + amount);
+            if (dirtyFromHour < 0 || now < dirtyFromHour) {
+                dirtyFromHour = now;
+            }
+        }
+        
+        synchronized long sum(long now, int metric, int hours) {
+            advance(now);
+            long total = 0;
+            for (int i = 0; i < hours; i++) {
+                total += buckets[metric * RING_HOURS + (int) ((now - i) % RING_HOURS)];
+            }
+            return total;
+        }
+        
+        // Clear the buckets of hours that passed since the newest one
+        void advance(long now) {
+            if (now <= hour) {
+                return;
+            }
+            long cleared = Math.min(now - hour, RING_HOURS);
+            for (long h = now - cleared + 1; h <= now; h++) {
+                int slot = (int) (h % RING_HOURS);
+                for (int metric = 0; metric < METRICS; metric++) {
+                    buckets[metric * RING_HOURS + slot] = 0;
+                }
+            }
+            hour = now;
+        }
+        
+        // The 24 hours of every metric of a day, 0 for hours outside the ring
+        int[] copyDay(long day, long now) {
+            int[] hours = new int[METRICS * HOURS_PER_DAY];
+            for (int h = 0; h < HOURS_PER_DAY; h++) {
+                long bucketHour = day * HOURS_PER_DAY + h;
+                if (bucketHour > now || bucketHour <= now - RING_HOURS) {
+                    continue;
+                }
+                int slot = (int) (bucketHour % RING_HOURS);
+                for (int metric = 0; metric < METRICS; metric++) {
+                    hours[metric * HOURS_PER_DAY + h] = buckets[metric * RING_HOURS + slot];
+                }
+            }
+            return hours;
+        }
+        
+        // Add a stored day to the buckets that are still within the ring
+        void addDay(long day, int[] hours, long now) {
+            advance(now);
+            for (int h = 0; h < HOURS_PER_DAY; h++) {
+                long bucketHour = day * HOURS_PER_DAY + h;
+                if (bucketHour > now || bucketHour <= now - RING_HOURS) {
+                    continue;
+                }
+                int slot = (int) (bucketHour % RING_HOURS);
+                for (int metric = 0; metric < METRICS; metric++) {
+                    int index = metric * RING_HOURS + slot;
+                    buckets[index] = (int) Math.min(Integer.MAX_VALUE, (long) buckets[index] + hours[metric * HOURS_PER_DAY + h]);
+                }
+            }
+        }
+    }
+}
@@ -2,128 +2,343 @@ package com.indusnetwork.managers;
 
 import com.indusnetwork.IndusNetworkPlugin;
 import com.indusnetwork.api.WebAPIManager;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.Statistic;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Player statistics kept as counters. The few scalar Bukkit statistics are
+ * read on every join on the main thread. The block totals, one statistic
+ * per block type, are read only when the player is new to memory, and then
+ * a few types per tick within StatsSampler's budget instead of all at once
+ * in the join. After that PlayerStatsListener adds kill, death and block
+ * increments as they happen, and StatsSampler re-reads playtime and
+ * distance walked, which Bukkit reports no increments for. Syncs only read
+ * the counters and never call the Bukkit API off the main thread.
+ */
 public class StatsManager {
     
+    // Every block type, for the MINE_BLOCK baseline
+    private static final Material[] BLOCK_MATERIALS = materials(false);
+    // Block types that exist as items; vanilla counts placing one as USE_ITEM of it
+    private static final Material[] PLACEABLE_MATERIALS = materials(true);
+    
     private final IndusNetworkPlugin plugin;
     private final Map<UUID, PlayerStatsData> playerStats;
+    // Players with changes not synced yet, flushed by flushDirty
+    private final Set<UUID> dirtyPlayers;
+    private final long minDelayMillis;
+    private final long maxDelayMillis;
+    private final AtomicLong debouncedSyncs = new AtomicLong();
+    private final AtomicLong suppressedSyncs = new AtomicLong();
+    private final StatsHistory history;
+    // Block totals still being read, oldest join first. Main thread only.
+    private final LinkedHashMap<UUID, BlockBaseline> pendingBaselines;
     
     public StatsManager(IndusNetworkPlugin plugin) {
         this.plugin = plugin;
-        this.playerStats = new HashMap<>();
+        this.playerStats = new ConcurrentHashMap<>();
+        this.dirtyPlayers = ConcurrentHashMap.newKeySet();
+        this.minDelayMillis = 1000L * Math.max(0, plugin.getConfig().getInt("sync.stats_min_delay", 2));
+        this.maxDelayMillis = Math.max(minDelayMillis, 1000L * plugin.getConfig().getInt("sync.stats_max_delay", 10));
+        this.history = new StatsHistory(plugin);
+        this.pendingBaselines = new LinkedHashMap<>();
+        
+        // Players already online after a reload
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            initializePlayer(player);
+        }
     }
     
     /**
-     * Initialize player stats tracking
+     * Start a session for the player and read the Bukkit statistics once
+     * as the baseline for the event-driven counters. The block totals of a
+     * player new to memory are queued for {@link #readBaselines(long)}; a
+     * player still in memory from an earlier session keeps the totals
+     * counted then. Must run on the main thread.
      */
     public void initializePlayer(Player player) {
         UUID playerId = player.getUniqueId();
-        
-        if (!playerStats.containsKey(playerId)) {
-            PlayerStatsData stats = new PlayerStatsData();
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats == null) {
+            stats = new PlayerStatsData();
             stats.playerId = playerId;
-            stats.playerName = player.getName();
-            stats.sessionStartTime = System.currentTimeMillis();
-            
-            // Load current Minecraft statistics
-            updatePlayerStats(player, stats);
-            
+            stats.blocksPending = true;
             playerStats.put(playerId, stats);
         }
+        stats.playerName = player.getName();
+        readBaseline(player, stats);
+        if (stats.blocksPending && !pendingBaselines.containsKey(playerId)) {
+            // Counters hold only the blocks since the read started; the read covers the rest
+            stats.blocksBroken = 0;
+            stats.blocksPlaced = 0;
+            pendingBaselines.put(playerId, new BlockBaseline());
+        }
+        stats.sessionStartTime = System.currentTimeMillis();
+        stats.sessionEndTime = 0;
+        history.track(player.getUniqueId());
     }
     
     /**
-     * Update player stats from Minecraft statistics
+     * Stop counting playtime for the player's session
      */
-    private void updatePlayerStats(Player player, PlayerStatsData stats) {
+    public void endSession(UUID playerId) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats != null && stats.sessionEndTime == 0) {
+            stats.sessionEndTime = System.currentTimeMillis();
+        }
+    }
+    
+    private void readBaseline(Player player, PlayerStatsData stats) {
         try {
             stats.kills = player.getStatistic(Statistic.PLAYER_KILLS);
             stats.deaths = player.getStatistic(Statistic.DEATHS);
             stats.distanceWalked = player.getStatistic(Statistic.WALK_ONE_CM);
             stats.playtimeMinutes = player.getStatistic(Statistic.PLAY_ONE_MINUTE) / 1200; // Convert ticks to minutes
-
-            // Calculate total blocks broken/placed by summing all materials
-            stats.blocksBroken = calculateTotalBlocksBroken(player);
-            stats.blocksPlaced = calculateTotalBlocksPlaced(player);
-
         } catch (Exception e) {
             // Some statistics might not be available, use defaults
             plugin.getLogger().warning("Could not load some statistics for " + player.getName() + ": " + e.getMessage());
         }
     }
 
-    private int calculateTotalBlocksBroken(Player player) {
-        int total = 0;
-        try {
-            // Sum up mining statistics for common blocks only
-            org.bukkit.Material[] commonBlocks = {
-                org.bukkit.Material.STONE, org.bukkit.Material.DIRT, org.bukkit.Material.COBBLESTONE,
-                org.bukkit.Material.OAK_LOG, org.bukkit.Material.COAL_ORE, org.bukkit.Material.IRON_ORE
-            };
-
-            for (org.bukkit.Material material : commonBlocks) {
-                try {
-                    total += player.getStatistic(Statistic.MINE_BLOCK, material);
-                } catch (Exception ignored) {
-                    // Skip if statistic doesn't exist for this material
-                }
+    /**
+     * Read queued block totals until the deadline, a block type at a time,
+     * then sync the players whose totals are complete. Called by
+     * StatsSampler on the main thread within its tick budget.
+     */
+    public void readBaselines(long deadlineNanos) {
+        Iterator<Map.Entry<UUID, BlockBaseline>> iterator = pendingBaselines.entrySet().iterator();
+        while (iterator.hasNext() && System.nanoTime() < deadlineNanos) {
+            Map.Entry<UUID, BlockBaseline> entry = iterator.next();
+            PlayerStatsData stats = playerStats.get(entry.getKey());
+            Player player = plugin.getServer().getPlayer(entry.getKey());
+            if (stats == null || player == null) {
+                // Quit or evicted; still pending, so the next join reads from scratch
+                iterator.remove();
+                continue;
             }
-        } catch (Exception e) {
-            return 0;
+            BlockBaseline baseline = entry.getValue();
+            if (!baseline.read(player, deadlineNanos)) {
+                return;
+            }
+            iterator.remove();
+            stats.blocksBroken += baseline.broken;
+            stats.blocksPlaced += baseline.placed;
+            stats.blocksPending = false;
+            markDirty(entry.getKey());
         }
-        return total;
     }
-
-    private int calculateTotalBlocksPlaced(Player player) {
-        int total = 0;
+    
+    private static int statistic(Player player, Statistic statistic, Material material) {
         try {
-            // Sum up placement statistics for common blocks only
-            org.bukkit.Material[] commonBlocks = {
-                org.bukkit.Material.STONE, org.bukkit.Material.DIRT, org.bukkit.Material.COBBLESTONE,
-                org.bukkit.Material.OAK_PLANKS, org.bukkit.Material.TORCH, org.bukkit.Material.CHEST
-            };
-
-            for (org.bukkit.Material material : commonBlocks) {
-                try {
-                    total += player.getStatistic(Statistic.USE_ITEM, material);
-                } catch (Exception ignored) {
-                    // Skip if statistic doesn't exist for this material
-                }
-            }
-        } catch (Exception e) {
+            return player.getStatistic(statistic, material);
+        } catch (Exception ignored) {
+            // Skip if statistic doesn't exist for this material
             return 0;
         }
-        return total;
+    }
+    
+    private static Material[] materials(boolean placeable) {
+        List<Material> materials = new ArrayList<>();
+        for (Material material : Material.values()) {
+            if (material.isBlock() && !material.isLegacy() && !material.isAir() && (!placeable || material.isItem())) {
+                materials.add(material);
+            }
+        }
+        return materials.toArray(new Material[0]);
+    }
+    
+    /**
+     * Count a block broken by the player. Called from BlockBreakEvent on
+     * the main thread.
+     */
+    public void recordBlockBroken(UUID playerId, Material material) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats != null) {
+            BlockBaseline baseline = pendingBaselines.get(playerId);
+            if (baseline != null && BlockBaseline.isUnread(BLOCK_MATERIALS, baseline.brokenCursor, material)) {
+                // The statistic read later includes this block
+                baseline.broken--;
+            }
+            stats.blocksBroken++;
+            history.record(playerId, StatsHistory.BLOCKS_BROKEN, 1);
+            markDirty(playerId);
+        }
+    }
+    
+    /**
+     * Count a block placed by the player from an item of the given type.
+     * Called from BlockPlaceEvent on the main thread.
+     */
+    public void recordBlockPlaced(UUID playerId, Material item) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats != null) {
+            BlockBaseline baseline = pendingBaselines.get(playerId);
+            if (baseline != null && BlockBaseline.isUnread(PLACEABLE_MATERIALS, baseline.placedCursor, item)) {
+                baseline.placed--;
+            }
+            stats.blocksPlaced++;
+            history.record(playerId, StatsHistory.BLOCKS_PLACED, 1);
+            markDirty(playerId);
+        }
+    }
+    
+    /**
+     * Take over statistics the sampler read on the main thread. Playtime and
+     * distance walked only change through samples and go out with the next
+     * periodic sync. Kill and death counters that drifted from the sample,
+     * e.g. because a command or another plugin set the statistic without an
+     * increment event, are corrected and synced.
+     */
+    public void applySample(UUID playerId, int kills, int deaths, long distanceWalked, long playtimeMinutes) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats == null) {
+            return;
+        }
+        
+        boolean drifted = stats.kills != kills || stats.deaths != deaths;
+        stats.kills = kills;
+        stats.deaths = deaths;
+        stats.distanceWalked = distanceWalked;
+        stats.playtimeMinutes = playtimeMinutes;
+        stats.sessionStartTime = System.currentTimeMillis();
+        if (drifted) {
+            markDirty(playerId);
+        }
+    }
+    
+    /**
+     * Add a statistic increment to the player's counters. Called from
+     * PlayerStatisticIncrementEvent on the main thread, which Bukkit does
+     * not fire for distance statistics such as WALK_ONE_CM.
+     */
+    public void recordIncrement(UUID playerId, Statistic statistic, int amount) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats == null || amount <= 0) {
+            return;
+        }
+        
+        switch (statistic) {
+            case PLAYER_KILLS:
+                stats.kills += amount;
+                history.record(playerId, StatsHistory.KILLS, amount);
+                break;
+            case DEATHS:
+                stats.deaths += amount;
+                history.record(playerId, StatsHistory.DEATHS, amount);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Add a minute of playtime to the history of every player in a session.
+     * Called once a minute.
+     */
+    public void recordPlaytimeMinute() {
+        for (PlayerStatsData stats : playerStats.values()) {
+            if (stats.sessionEndTime == 0) {
+                history.record(stats.playerId, StatsHistory.PLAYTIME, 1);
+            }
+        }
+    }
+    
+    /**
+     * Ask for a sync of the player's stats after a change. Repeated changes
+     * are debounced: the sync happens once the player has been quiet for
+     * sync.stats_min_delay, or sync.stats_max_delay after the first change
+     * at the latest. Called on the main thread.
+     */
+    public void markDirty(UUID playerId) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        if (stats == null) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        stats.lastChangeTime = now;
+        if (dirtyPlayers.contains(playerId)) {
+            // Folded into the sync already due
+            suppressedSyncs.incrementAndGet();
+            return;
+        }
+        stats.dirtySince = now;
+        dirtyPlayers.add(playerId);
+    }
+    
+    /**
+     * Sync every dirty player whose debounce delay has passed
+     */
+    public void flushDirty() {
+        long now = System.currentTimeMillis();
+        for (UUID playerId : dirtyPlayers) {
+            PlayerStatsData stats = playerStats.get(playerId);
+            if (stats == null) {
+                dirtyPlayers.remove(playerId);
+                continue;
+            }
+            if (now - stats.lastChangeTime >= minDelayMillis || now - stats.dirtySince >= maxDelayMillis) {
+                dirtyPlayers.remove(playerId);
+                syncPlayerStats(playerId);
+                debouncedSyncs.incrementAndGet();
+            }
+        }
+    }
+    
+    public int getDirtyCount() {
+        return dirtyPlayers.size();
+    }
+    
+    public long getDebouncedSyncCount() {
+        return debouncedSyncs.get();
+    }
+    
+    public long getSuppressedSyncCount() {
+        return suppressedSyncs.get();
     }
     
     /**
      * Sync player stats with website
      */
     public CompletableFuture<Void> syncPlayerStats(Player player) {
-        return CompletableFuture.runAsync(() -> {
-            PlayerStatsData stats = playerStats.get(player.getUniqueId());
-            if (stats != null) {
-                updatePlayerStats(player, stats);
-                
-                WebAPIManager.PlayerStats apiStats = new WebAPIManager.PlayerStats(
-                    stats.kills,
-                    stats.deaths,
-                    stats.playtimeMinutes,
-                    stats.blocksBroken,
-                    stats.blocksPlaced,
-                    stats.distanceWalked
-                );
-                
-                plugin.getWebAPIManager().syncPlayerStats(player.getUniqueId(), apiStats);
-            }
-        });
+        return syncPlayerStats(player.getUniqueId());
+    }
+    
+    /**
+     * Queue the player's current counters for the website. Reads no Bukkit
+     * state, so it is safe from any thread. The sync queue holds at most one
+     * stats update per player; a newer one replaces it instead of adding a
+     * request.
+     */
+    public CompletableFuture<Void> syncPlayerStats(UUID playerId) {
+        PlayerStatsData stats = playerStats.get(playerId);
+        // Held back until the block totals are read, so the website never sees them drop
+        if (stats != null && !stats.blocksPending) {
+            WebAPIManager.PlayerStats apiStats = new WebAPIManager.PlayerStats(
+                stats.kills,
+                stats.deaths,
+                stats.getPlaytimeMinutes(),
+                stats.blocksBroken,
+                stats.blocksPlaced,
+                stats.distanceWalked
+            );
+            
+            plugin.getWebSyncQueue().queueStats(playerId, apiStats);
+        }
+        return CompletableFuture.completedFuture(null);
     }
     
     /**
@@ -137,38 +352,99 @@ public class StatsManager {
      * Save all player stats
      */
     public void saveAllStats() {
-        for (Player player : plugin.getServer().getOnlinePlayers()) {
-            syncPlayerStats(player);
+        // Online players, found without asking Bukkit from a timer thread
+        for (PlayerStatsData stats : playerStats.values()) {
+            if (stats.sessionEndTime == 0) {
+                syncPlayerStats(stats.playerId);
+            }
         }
     }
     
     /**
-     * Remove player from tracking when they leave
+     * Stop tracking the player once their state is evicted from memory
      */
     public void removePlayer(UUID playerId) {
         playerStats.remove(playerId);
+        dirtyPlayers.remove(playerId);
+        history.removePlayer(playerId);
     }
     
-    // Inner class to hold player stats data
+    /**
+     * Hourly, daily and weekly totals of the tracked players
+     */
+    public StatsHistory getHistory() {
+        return history;
+    }
+    
+    // Inner class to hold player stats data. Counters are only written on
+    // the main thread and are volatile so syncs on other threads see them.
     public static class PlayerStatsData {
         public UUID playerId;
-        public String playerName;
-        public int kills = 0;
-        public int deaths = 0;
-        public int blocksBroken = 0;
-        public int blocksPlaced = 0;
-        public long distanceWalked = 0;
-        public long playtimeMinutes = 0;
-        public long sessionStartTime = 0;
+        public volatile String playerName;
+        public volatile int kills = 0;
+        public volatile int deaths = 0;
+        public volatile int blocksBroken = 0;
+        public volatile int blocksPlaced = 0;
+        public volatile long distanceWalked = 0;
+        // Block totals not read yet; the block counters hold only this session's blocks
+        public volatile boolean blocksPending = false;
+        // Playtime up to sessionStartTime
+        public volatile long playtimeMinutes = 0;
+        public volatile long sessionStartTime = 0;
+        // 0 while the player is online
+        public volatile long sessionEndTime = 0;
+        // Debounce state of a pending sync
+        volatile long dirtySince = 0;
+        volatile long lastChangeTime = 0;
+        
+        /**
+         * Playtime including the current or last session
+         */
+        public long getPlaytimeMinutes() {
+            long end = sessionEndTime != 0 ? sessionEndTime : System.currentTimeMillis();
+            return playtimeMinutes + Math.max(0L, end - sessionStartTime) / 60000L;
+        }
         
         public double getKDRatio() {
             return deaths > 0 ? (double) kills / deaths : kills;
         }
         
         public String getFormattedPlaytime() {
-            long hours = playtimeMinutes / 60;
-            long minutes = playtimeMinutes % 60;
+            long total = getPlaytimeMinutes();
+            long hours = total / 60;
+            long minutes = total % 60;
             return hours + "h " + minutes + "m";
         }
     }
+    
+    // Progress of reading one player's block totals. The block types are in
+    // ordinal order, so a cursor tells which of them have been read.
+    private static final class BlockBaseline {
+        private int brokenCursor;
+        private int placedCursor;
+        private int broken;
+        private int placed;
+        
+        // Read until the deadline; true once both totals are complete
+        boolean read(Player player, long deadlineNanos) {
+            while (brokenCursor < BLOCK_MATERIALS.length) {
+                if (System.nanoTime() >= deadlineNanos) {
+                    return false;
+                }
+                broken += statistic(player, Statistic.MINE_BLOCK, BLOCK_MATERIALS[brokenCursor++]);
+            }
+            while (placedCursor < PLACEABLE_MATERIALS.length) {
+                if (System.nanoTime() >= deadlineNanos) {
+                    return false;
+                }
+                placed += statistic(player, Statistic.USE_ITEM, PLACEABLE_MATERIALS[placedCursor++]);
+            }
+            return true;
+        }
+        
+        // Whether the type is still to be read; enums compare by ordinal
+        static boolean isUnread(Material[] materials, int cursor, Material material) {
+            return Arrays.binarySearch(materials, cursor, materials.length, material) >= 0;
+        }
+    }
 }
@@ -0,0 +1,158 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import org.bukkit.Statistic;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Re-reads the Bukkit statistics that no event reports, PLAY_ONE_MINUTE and
+ * WALK_ONE_CM (Bukkit fires no PlayerStatisticIncrementEvent for distance
+ * statistics), on the main thread without a lag spike.
+ * Online players wait in a round-robin queue ordered by when they are next
+ * due. Every tick the sampler takes due players from the head until its
+ * microsecond budget for the tick is spent, so a full server is sampled
+ * over several ticks instead of in one. Samples go to StatsManager, which
+ * hands changed stats to the debounced async sync. The same budget first
+ * goes to the block totals StatsManager reads for joined players, so they
+ * are spread over ticks too; those are read even when sampling is off.
+ */
+public class StatsSampler implements Runnable {
+    
+    private final IndusNetworkPlugin plugin;
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final long budgetNanos;
+    // Main thread only; due times increase from head to tail
+    private final ArrayDeque<Slot> queue;
+    private final Set<UUID> tracked;
+    
+    private volatile long lagMillis;
+    private volatile long lastTickNanos;
+    private volatile long averageTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long samples;
+    private volatile int queued;
+    
+    public StatsSampler(IndusNetworkPlugin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("stats_sampler.enabled", true);
+        this.intervalMillis = 1000L * Math.max(1, plugin.getConfig().getInt("stats_sampler.interval", 60));
+        this.budgetNanos = 1000L * Math.max(1, plugin.getConfig().getInt("stats_sampler.tick_budget_micros", 500));
+        this.queue = new ArrayDeque<>();
+        this.tracked = new HashSet<>();
+        
+        // Players already online after a reload
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            track(player.getUniqueId());
+        }
+    }
+    
+    /**
+     * Start sampling the player, first one interval from now. Main thread only.
+     */
+    public void track(UUID playerId) {
+        if (!enabled) {
+            return; // Nothing drains the queue
+        }
+        if (!tracked.add(playerId)) {
+            return; // Rejoined before the old slot was dropped
+        }
+        queue.addLast(new Slot(playerId, System.currentTimeMillis() + intervalMillis));
+        queued = queue.size();
+    }
+    
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        StatsManager statsManager = plugin.getStatsManager();
+        statsManager.readBaselines(start + budgetNanos);
+        
+        Slot slot;
+        while ((slot = queue.peekFirst()) != null && slot.dueAt <= now && System.nanoTime() - start < budgetNanos) {
+            queue.pollFirst();
+            Player player = plugin.getServer().getPlayer(slot.playerId);
+            if (player == null) {
+                tracked.remove(slot.playerId);
+                continue; // Quit since it was queued
+            }
+            sample(statsManager, player);
+            slot.dueAt = now + intervalMillis;
+            queue.addLast(slot);
+        }
+        
+        Slot head = queue.peekFirst();
+        lagMillis = head != null ? Math.max(0L, now - head.dueAt) : 0L;
+        queued = queue.size();
+        
+        long elapsed = System.nanoTime() - start;
+        lastTickNanos = elapsed;
+        averageTickNanos += (elapsed - averageTickNanos) / 20; // Moving average over about a second
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+    }
+    
+    private void sample(StatsManager statsManager, Player player) {
+        try {
+            statsManager.applySample(player.getUniqueId(),
+                player.getStatistic(Statistic.PLAYER_KILLS),
+                player.getStatistic(Statistic.DEATHS),
+                player.getStatistic(Statistic.WALK_ONE_CM),
+                player.getStatistic(Statistic.PLAY_ONE_MINUTE) / 1200); // Convert ticks to minutes
+            samples++;
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not sample statistics for " + player.getName() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * How long the most overdue player has been waiting for a sample
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+    
+    public long getLastTickMicros() {
+        return lastTickNanos / 1000L;
+    }
+    
+    public long getAverageTickMicros() {
+        return averageTickNanos / 1000L;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public long getMaxTickMicros() {
+        return maxTickNanos / 1000L;
+    }
+    
+    public long getBudgetMicros() {
+        return budgetNanos / 1000L;
+    }
+    
+    public long getSampleCount() {
+        return samples;
+    }
+    
+    public int getQueuedCount() {
+        return queued;
+    }
+    
+    private static final class Slot {
+        private final UUID playerId;
+        private long dueAt;
+        
+        Slot(UUID playerId, long dueAt) {
+            this.playerId = playerId;
+            this.dueAt = dueAt;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.indusnetwork.managers;
+
+import com.indusnetwork.IndusNetworkPlugin;
+import net.milkbowl.vault.economy.Economy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Vault economy over the coin ledger, so shops and other plugins can use
+ * IndusNetwork coins directly. Balance and account checks are lock-free
+ * ledger reads; only a read that races with the account being dropped or
+ * moved waits for its segment lock. Deposits and withdrawals are single
+ * ledger transactions and reach the website through the regular
+ * write-behind coin sync. Coins are whole
+ * numbers: deposits are rounded down and withdrawals rounded up. Worlds are
+ * ignored and banks are not supported.
+ */
+public class VaultEconomyProvider implements Economy {
+    
+    private static final String NO_BANKS = "IndusNetwork coins do not support banks";
+    
+    private final IndusNetworkPlugin plugin;
+    private final CoinManager coinManager;
+    
+    public VaultEconomyProvider(IndusNetworkPlugin plugin, CoinManager coinManager) {
+        this.plugin = plugin;
+        this.coinManager = coinManager;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return plugin.isEnabled();
+    }
+    
+    @Override
+    public String getName() {
+        return "IndusNetwork";
+    }
+    
+    @Override
+    public boolean hasBankSupport() {
+        return false;
+    }
+    
+    @Override
+    public int fractionalDigits() {
+        return 0;
+    }
+    
+    @Override
+    public String format(double amount) {
+        long coins = (long) amount;
+        return coins + " " + (coins == 1 ? currencyNameSingular() : currencyNamePlural());
+    }
+    
+    @Override
+    public String currencyNamePlural() {
+        return plugin.getConfig().getString("settings.currency_plural", "coins");
+    }
+    
+    @Override
+    public String currencyNameSingular() {
+        return plugin.getConfig().getString("settings.currency_singular", "coin");
+    }
+    
+    @Override
+    public boolean hasAccount(OfflinePlayer player) {
+        return coinManager.getLedger().hasAccount(player.getUniqueId());
+    }
+    
+    @Override
+    public boolean hasAccount(OfflinePlayer player, String worldName) {
+        return hasAccount(player);
+    }
+    
+    @Override
+    public double getBalance(OfflinePlayer player) {
+        return coinManager.getLedger().getBalance(player.getUniqueId());
+    }
+    
+    @Override
+    public double getBalance(OfflinePlayer player, String world) {
+        return getBalance(player);
+    }
+    
+    @Override
+    public boolean has(OfflinePlayer player, double amount) {
+        return coinManager.getLedger().getBalance(player.getUniqueId()) >= withdrawalCoins(amount);
+    }
+    
+    @Override
+    public boolean has(OfflinePlayer player, String worldName, double amount) {
+        return has(player, amount);
+    }
+    
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
+        if (!isValidAmount(amount)) {
+            return failure(amount, player.getUniqueId(), "Invalid amount: " + amount);
+        }
+        long coins = withdrawalCoins(amount);
+        if (coins > 0 && coinManager.applyTransaction(CoinTransaction.create(player.getUniqueId(), -coins, CoinTransaction.REASON_VAULT))
+                != CoinLedger.Result.APPLIED) {
+            return failure(coins, player.getUniqueId(), "Insufficient funds");
+        }
+        return success(coins, player.getUniqueId());
+    }
+    
+    @Override
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, String worldName, double amount) {
+        return withdrawPlayer(player, amount);
+    }
+    
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        if (!isValidAmount(amount)) {
+            return failure(amount, player.getUniqueId(), "Invalid amount: " + amount);
+        }
+        long coins = (long) Math.floor(amount);
+        if (coins > 0) {
+            coinManager.applyTransaction(CoinTransaction.create(player.getUniqueId(), coins, CoinTransaction.REASON_VAULT));
+        }
+        return success(coins, player.getUniqueId());
+    }
+    
+    @Override
+    public EconomyResponse depositPlayer(OfflinePlayer player, String worldName, double amount) {
+        return depositPlayer(player, amount);
+    }
+    
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player) {
+        return coinManager.getLedger().createAccount(player.getUniqueId());
+    }
+    
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player, String worldName) {
+        return createPlayerAccount(player);
+    }
+    
+    // Name based methods, kept by Vault for older plugins
+    
+    @Override
+    @Deprecated
+    public boolean hasAccount(String playerName) {
+        return hasAccount(resolve(playerName));
+    }
+    
+    @Override
+    @Deprecated
+    public boolean hasAccount(String playerName, String worldName) {
+        return hasAccount(resolve(playerName));
+    }
+    
+    @Override
+    @Deprecated
+    public double getBalance(String playerName) {
+        return getBalance(resolve(playerName));
+    }
+    
+    @Override
+    @Deprecated
+    public double getBalance(String playerName, String world) {
+        return getBalance(resolve(playerName));
+    }
+    
+    @Override
+    @Deprecated
+    public boolean has(String playerName, double amount) {
+        return has(resolve(playerName), amount);
+    }
+    
+    @Override
+    @Deprecated
+    public boolean has(String playerName, String worldName, double amount) {
+        return has(resolve(playerName), amount);
+    }
+    
+    @Override
+    @Deprecated
+    public EconomyResponse withdrawPlayer(String playerName, double amount) {
+        return withdrawPlayer(resolve(playerName), amount);
+    }
+    
+    @Override
+    @Deprecated
+    public EconomyResponse withdrawPlayer(String playerName, String worldName, double amount) {
+        return withdrawPlayer(resolve(playerName), amount);
+    }
+    
+    @Override
+    @Deprecated
+    public EconomyResponse depositPlayer(String playerName, double amount) {
+        return depositPlayer(resolve(playerName), amount);
+    }
+    
+    @Override
+    @Deprecated
+    public EconomyResponse depositPlayer(String playerName, String worldName, double amount) {
+        return depositPlayer(resolve(playerName), amount);
+    }
+    
+    @Override
+    @Deprecated
+    public boolean createPlayerAccount(String playerName) {
+        return createPlayerAccount(resolve(playerName));
+    }
+    
+    @Override
+    @Deprecated
+    public boolean createPlayerAccount(String playerName, String worldName) {
+        return createPlayerAccount(resolve(playerName));
+    }
+    
+    // Banks
+    
+    @Override
+    @Deprecated
+    public EconomyResponse createBank(String name, String player) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse createBank(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse deleteBank(String name) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse bankBalance(String name) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse bankHas(String name, double amount) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse bankWithdraw(String name, double amount) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse bankDeposit(String name, double amount) {
+        return noBanks();
+    }
+    
+    @Override
+    @Deprecated
+    public EconomyResponse isBankOwner(String name, String playerName) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse isBankOwner(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+    
+    @Override
+    @Deprecated
+    public EconomyResponse isBankMember(String name, String playerName) {
+        return noBanks();
+    }
+    
+    @Override
+    public EconomyResponse isBankMember(String name, OfflinePlayer player) {
+        return noBanks();
+    }
+    
+    @Override
+    public List<String> getBanks() {
+        return Collections.emptyList();
+    }
+    
+    // Online players are found without touching the offline player cache
+    @SuppressWarnings("deprecation")
+    private OfflinePlayer resolve(String playerName) {
+        Player online = plugin.getServer().getPlayerExact(playerName);
+        return online != null ? online : plugin.getServer().getOfflinePlayer(playerName);
+    }
+    
+    private static boolean isValidAmount(double amount) {
+        return amount >= 0 && !Double.isInfinite(amount);
+    }
+    
+    private static long withdrawalCoins(double amount) {
+        return (long) Math.ceil(amount);
+    }
+    
+    private EconomyResponse success(double amount, UUID playerId) {
+        return new EconomyResponse(amount, coinManager.getLedger().getBalance(playerId), EconomyResponse.ResponseType.SUCCESS, null);
+    }
+    
+    private EconomyResponse failure(double amount, UUID playerId, String message) {
+        return new EconomyResponse(amount, coinManager.getLedger().getBalance(playerId), EconomyResponse.ResponseType.FAILURE, message);
+    }
+    
+    private static EconomyResponse noBanks() {
+        return new EconomyResponse(0, 0, EconomyResponse.ResponseType.NOT_IMPLEMENTED, NO_BANKS);
+    }
+}
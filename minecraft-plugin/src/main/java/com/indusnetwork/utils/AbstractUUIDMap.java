@@ -0,0 +1,200 @@
+package com.indusnetwork.utils;
+
+import java.util.UUID;
+
+/**
+ * Open-addressing hash table keyed by the two longs of a UUID.
+ * Keys are stored inline in parallel arrays and probed linearly, so a lookup
+ * touches no objects and an entry costs a few dozen bytes less than a
+ * HashMap node with a UUID and a boxed value. Removal shifts the following
+ * entries back instead of leaving tombstones. Values live in a primitive
+ * array of type A indexed by slot; this class allocates, moves and rehashes
+ * it, and subclasses only read and write it. Not thread-safe.
+ */
+public abstract class AbstractUUIDMap<A> {
+    
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+    
+    private long[] mostBits;
+    private long[] leastBits;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    
+    protected AbstractUUIDMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+    
+    /**
+     * Copy of another map, e.g. to change it while readers keep using the original
+     */
+    protected AbstractUUIDMap(AbstractUUIDMap<A> other) {
+        mostBits = other.mostBits.clone();
+        leastBits = other.leastBits.clone();
+        used = other.used.clone();
+        A values = newValues(used.length);
+        System.arraycopy(other.values(), 0, values, 0, used.length);
+        setValues(values);
+        mask = other.mask;
+        size = other.size;
+        resizeAt = other.resizeAt;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public boolean containsKey(UUID key) {
+        return slotOf(key) >= 0;
+    }
+    
+    /**
+     * Remove the key. Returns false if it was not present.
+     */
+    public boolean remove(UUID key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+    
+    public void clear() {
+        allocate(MIN_CAPACITY);
+    }
+    
+    /**
+     * Slot holding the key, or -1
+     */
+    protected final int slotOf(UUID key) {
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        int slot = hash(most, least) & mask;
+        while (used[slot]) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Slot holding the key, claiming a free one if the key is new.
+     * New keys are returned as -(slot + 1) so the caller can initialise the value.
+     */
+    protected final int insertSlot(UUID key) {
+        if (size >= resizeAt) {
+            resize(mostBits.length << 1);
+        }
+        long most = key.getMostSignificantBits();
+        long least = key.getLeastSignificantBits();
+        int slot = hash(most, least) & mask;
+        while (used[slot]) {
+            if (mostBits[slot] == most && leastBits[slot] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        size++;
+        return -(slot + 1);
+    }
+    
+    protected final void removeSlot(int slot) {
+        size--;
+        // Shift later entries of the probe run back so lookups never hit a gap
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = hash(mostBits[next], leastBits[next]) & mask;
+            // Move the entry if its home slot is not between the gap and its current slot
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                mostBits[gap] = mostBits[next];
+                leastBits[gap] = leastBits[next];
+                System.arraycopy(values(), next, values(), gap, 1);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+    }
+    
+    protected final boolean isUsed(int slot) {
+        return used[slot];
+    }
+    
+    protected final UUID keyAt(int slot) {
+        return new UUID(mostBits[slot], leastBits[slot]);
+    }
+    
+    protected final int capacity() {
+        return used.length;
+    }
+    
+    /**
+     * Create a zeroed value array of the given capacity
+     */
+    protected abstract A newValues(int capacity);
+    
+    /**
+     * The current value array
+     */
+    protected abstract A values();
+    
+    protected abstract void setValues(A values);
+    
+    private void allocate(int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        used = new boolean[capacity];
+        setValues(newValues(capacity));
+        mask = capacity - 1;
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    private void resize(int capacity) {
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        boolean[] oldUsed = used;
+        A oldValues = values();
+        int count = size;
+        allocate(capacity);
+        size = count;
+        
+        A newValues = values();
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (!oldUsed[i]) {
+                continue;
+            }
+            int slot = hash(oldMost[i], oldLeast[i]) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            mostBits[slot] = oldMost[i];
+            leastBits[slot] = oldLeast[i];
+            System.arraycopy(oldValues, i, newValues, slot, 1);
+        }
+    }
+    
+    private static int hash(long most, long least) {
+        // Fibonacci mix so sequential or low-entropy UUIDs still spread
+        long h = (most ^ least) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,95 @@
+package com.indusnetwork.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets in microseconds.
+ * Values below 16 microseconds get their own bucket; above that every power of two is
+ * split into 8 sub-buckets, so reported percentiles are within 12.5% of the
+ * recorded value. Recording is a couple of atomic increments and never
+ * allocates, so it is safe on hot paths.
+ */
+public class LatencyHistogram {
+    
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Largest tracked value is just under 2^36 microseconds (about 19 hours)
+    private static final int MAX_EXPONENT = 35;
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Record one observation given in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0L, nanos / 1000L);
+        counts.incrementAndGet(bucketOf(micros));
+        total.incrementAndGet();
+        
+        long current = max.get();
+        while (micros > current && !max.compareAndSet(current, micros)) {
+            current = max.get();
+        }
+    }
+    
+    public long getCount() {
+        return total.get();
+    }
+    
+    public long getMaxMicros() {
+        return max.get();
+    }
+    
+    /**
+     * Approximate value at the given percentile (0-100) in microseconds
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0L);
+        }
+        total.set(0L);
+        max.set(0L);
+    }
+    
+    private static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+    
+    private static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
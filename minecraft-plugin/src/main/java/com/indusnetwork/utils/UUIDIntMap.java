@@ -0,0 +1,86 @@
+package com.indusnetwork.utils;
+
+import java.util.UUID;
+
+/**
+ * UUID to int map without boxing. Not thread-safe.
+ */
+public class UUIDIntMap extends AbstractUUIDMap<int[]> {
+    
+    // Allocated by the base constructor, so it must not have an initializer
+    private int[] values;
+    
+    public UUIDIntMap() {
+        this(16);
+    }
+    
+    public UUIDIntMap(int expectedSize) {
+        super(expectedSize);
+    }
+    
+    public UUIDIntMap(UUIDIntMap other) {
+        super(other);
+    }
+    
+    public int get(UUID key, int defaultValue) {
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+    
+    /**
+     * Set the value. Returns the previous value, or defaultValue if the key was new.
+     */
+    public int put(UUID key, int value, int defaultValue) {
+        int slot = insertSlot(key);
+        if (slot < 0) {
+            values[-slot - 1] = value;
+            return defaultValue;
+        }
+        int previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+    
+    public void put(UUID key, int value) {
+        put(key, value, 0);
+    }
+    
+    /**
+     * Add to the value, starting from 0 for new keys. Returns the new value.
+     */
+    public int addTo(UUID key, int delta) {
+        int slot = insertSlot(key);
+        if (slot < 0) {
+            values[-slot - 1] = delta;
+            return delta;
+        }
+        return values[slot] += delta;
+    }
+    
+    public void forEach(Consumer consumer) {
+        for (int slot = 0; slot < capacity(); slot++) {
+            if (isUsed(slot)) {
+                consumer.accept(keyAt(slot), values[slot]);
+            }
+        }
+    }
+    
+    @Override
+    protected int[] newValues(int capacity) {
+        return new int[capacity];
+    }
+    
+    @Override
+    protected int[] values() {
+        return values;
+    }
+    
+    @Override
+    protected void setValues(int[] values) {
+        this.values = values;
+    }
+    
+    public interface Consumer {
+        void accept(UUID key, int value);
+    }
+}
@@ -0,0 +1,82 @@
+package com.indusnetwork.utils;
+
+import java.util.UUID;
+
+/**
+ * UUID to long map without boxing. Not thread-safe.
+ */
+public class UUIDLongMap extends AbstractUUIDMap<long[]> {
+    
+    // Allocated by the base constructor, so it must not have an initializer
+    private long[] values;
+    
+    public UUIDLongMap() {
+        this(16);
+    }
+    
+    public UUIDLongMap(int expectedSize) {
+        super(expectedSize);
+    }
+    
+    public long get(UUID key, long defaultValue) {
+        int slot = slotOf(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+    
+    /**
+     * Set the value. Returns the previous value, or defaultValue if the key was new.
+     */
+    public long put(UUID key, long value, long defaultValue) {
+        int slot = insertSlot(key);
+        if (slot < 0) {
+            values[-slot - 1] = value;
+            return defaultValue;
+        }
+        long previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+    
+    public void put(UUID key, long value) {
+        put(key, value, 0L);
+    }
+    
+    /**
+     * Add to the value, starting from 0 for new keys. Returns the new value.
+     */
+    public long addTo(UUID key, long delta) {
+        int slot = insertSlot(key);
+        if (slot < 0) {
+            values[-slot - 1] = delta;
+            return delta;
+        }
+        return values[slot] += delta;
+    }
+    
+    public void forEach(Consumer consumer) {
+        for (int slot = 0; slot < capacity(); slot++) {
+            if (isUsed(slot)) {
+                consumer.accept(keyAt(slot), values[slot]);
+            }
+        }
+    }
+    
+    @Override
+    protected long[] newValues(int capacity) {
+        return new long[capacity];
+    }
+    
+    @Override
+    protected long[] values() {
+        return values;
+    }
+    
+    @Override
+    protected void setValues(long[] values) {
+        this.values = values;
+    }
+    
+    public interface Consumer {
+        void accept(UUID key, long value);
+    }
+}
@@ -13,6 +13,8 @@ import {
   getPlayer,
   updatePlayerRank,
   getOnlinePlayers,
+  submitCoinTransactions,
+  submitBulkCoinTransactions,
 } from "./routes/players";
 import {
   getServerStatus,
@@ -98,6 +100,8 @@ export function createServer() {
   app.get("/api/players/online", getOnlinePlayers);
   app.get("/api/players/:id", getPlayer);
   app.patch("/api/players/:id/rank", updatePlayerRank);
+  app.post("/api/players/:id/coins/transactions", submitCoinTransactions);
+  app.post("/api/coins/transactions", submitBulkCoinTransactions);
 
   // Server API routes
   app.get("/api/server/status", getServerStatus);
@@ -64,6 +64,10 @@ const mockPlayers: Player[] = [
   }
 ];
 
+// Players are addressed by id, UUID or username
+const findPlayer = (id: string) =>
+  mockPlayers.find(p => p.id === id || p.uuid === id || p.username.toLowerCase() === id.toLowerCase());
+
 export const getPlayers: RequestHandler = (req, res) => {
   const page = parseInt(req.query.page as string) || 1;
   const limit = parseInt(req.query.limit as string) || 10;
@@ -97,7 +101,7 @@ export const getPlayers: RequestHandler = (req, res) => {
 
 export const getPlayer: RequestHandler = (req, res) => {
   const { id } = req.params;
-  const player = mockPlayers.find(p => p.id === id || p.username.toLowerCase() === id.toLowerCase());
+  const player = findPlayer(id);
   
   if (!player) {
     const response: ApiResponse = {
@@ -153,3 +157,105 @@ export const getOnlinePlayers: RequestHandler = (req, res) => {
   
   res.json(response);
 };
+
+interface CoinTransactionInput {
+  player_id?: string;
+  id: string;
+  delta: number;
+  reason?: string;
+  created_at?: number;
+}
+
+// Ids of applied coin transactions, so a replayed batch is not applied twice
+const appliedCoinTransactions = new Set<string>();
+
+const findOrCreatePlayer = (uuid: string) => {
+  let player = findPlayer(uuid);
+  if (!player) {
+    const now = new Date().toISOString();
+    player = {
+      id: String(mockPlayers.length + 1),
+      uuid,
+      username: uuid,
+      rank: "Member",
+      balance: 0,
+      level: 1,
+      experience: 0,
+      playtime: 0,
+      lastSeen: now,
+      joinDate: now,
+      kills: 0,
+      deaths: 0,
+      blocksPlaced: 0,
+      blocksBroken: 0,
+      achievements: [],
+      isOnline: false
+    };
+    mockPlayers.push(player);
+  }
+  return player;
+};
+
+const isValidTransaction = (transaction: CoinTransactionInput) =>
+  transaction && typeof transaction.id === "string" && Number.isFinite(transaction.delta);
+
+const applyCoinTransactions = (transactions: CoinTransactionInput[], playerFor: (t: CoinTransactionInput) => Player) => {
+  let applied = 0;
+  let duplicates = 0;
+  for (const transaction of transactions) {
+    if (appliedCoinTransactions.has(transaction.id)) {
+      duplicates++;
+      continue;
+    }
+    const player = playerFor(transaction);
+    player.balance = Math.max(0, player.balance + transaction.delta);
+    appliedCoinTransactions.add(transaction.id);
+    applied++;
+  }
+  return { applied, duplicates };
+};
+
+export const submitCoinTransactions: RequestHandler = (req, res) => {
+  const { id } = req.params;
+  const transactions: CoinTransactionInput[] = req.body?.transactions;
+  
+  if (!Array.isArray(transactions) || !transactions.every(isValidTransaction)) {
+    const response: ApiResponse = {
+      success: false,
+      error: "Expected a transactions array of { id, delta }"
+    };
+    return res.status(400).json(response);
+  }
+  
+  const player = findOrCreatePlayer(id);
+  const result = applyCoinTransactions(transactions, () => player);
+  
+  const response: ApiResponse = {
+    success: true,
+    data: { ...result, balance: player.balance }
+  };
+  
+  res.json(response);
+};
+
+export const submitBulkCoinTransactions: RequestHandler = (req, res) => {
+  const transactions: CoinTransactionInput[] = req.body?.transactions;
+  
+  if (!Array.isArray(transactions)
+      || !transactions.every(t => isValidTransaction(t) && typeof t.player_id === "string")) {
+    const response: ApiResponse = {
+      success: false,
+      error: "Expected a transactions array of { player_id, id, delta }"
+    };
+    return res.status(400).json(response);
+  }
+  
+  const result = applyCoinTransactions(transactions, t => findOrCreatePlayer(t.player_id as string));
+  
+  const response: ApiResponse = {
+    success: true,
+    data: result
+  };
+  
+  res.json(response);
+};